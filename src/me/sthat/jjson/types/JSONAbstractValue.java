@@ -2,8 +2,6 @@ package me.sthat.jjson.types;
 
 import me.sthat.jjson.exceptions.JSONTypeMismatch;
 
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.Objects;
 
 /*
@@ -47,16 +45,15 @@ public abstract class JSONAbstractValue<T> implements JSONIValue<T> {
         this.value = value;
     }
 
-    public T getValue() {
-        return value;
+    /**
+     * For subclasses keeping their value in a primitive field, which override {@link #getValue()}
+     */
+    protected JSONAbstractValue() {
+        this.value = null;
     }
 
-    public void print(int indentation, int currIndentation) {
-        System.out.print(this);
-    }
-
-    public void stringify(FileWriter writer, int indentation, int currIndentation) throws IOException {
-        writer.write(toString());
+    public T getValue() {
+        return value;
     }
 
     public String toString() {
@@ -66,11 +63,9 @@ public abstract class JSONAbstractValue<T> implements JSONIValue<T> {
         return String.valueOf(value);
     }
 
+    /* Overridden by JSONInteger */
     public long asLong() {
-        if (!(this instanceof JSONInteger)) {
-            throw new JSONTypeMismatch(getType() + " cannot be cast to long");
-        }
-        return ((JSONInteger)this).getValue();
+        throw new JSONTypeMismatch(getType() + " cannot be cast to long");
     }
 
     public String asString() {
@@ -89,12 +84,9 @@ public abstract class JSONAbstractValue<T> implements JSONIValue<T> {
         return ((JSONBoolean)this).getValue();
     }
 
+    /* Overridden by JSONDouble */
     public double asDouble() {
-        if (!(this instanceof JSONDouble)) {
-            throw new JSONTypeMismatch(getType() + " cannot be cast to double");
-        }
-
-        return ((JSONDouble)this).getValue();
+        throw new JSONTypeMismatch(getType() + " cannot be cast to double");
     }
 
     public JSONArray asArray() {
@@ -113,7 +105,7 @@ public abstract class JSONAbstractValue<T> implements JSONIValue<T> {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         JSONAbstractValue<?> other = (JSONAbstractValue<?>) o;
-        return value.equals(other.value);
+        return Objects.equals(value, other.value);
     }
 
     public int hashCode() {
@@ -1,10 +1,11 @@
 package me.sthat.jjson.types;
 
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 /*
@@ -33,31 +34,69 @@ import java.util.stream.Stream;
 
 
 /**
- * JSONArray holds a list of JSONIElement
+ * JSONArray holds a list of JSONIElement.
+ * An array made only of integers, or only of doubles, can be held in a primitive array instead, see {@link #ofLongs(long...)}.
  *
  * @since 1.0.12
  * @author sthat
  */
 public class JSONArray implements JSONIContainer<List<JSONIElement>>, Iterable<JSONIElement> {
 
-    private final List<JSONIElement> list = new ArrayList<>();
+    private List<JSONIElement> list = new ArrayList<>();
+
+    /* Builds the elements the first time they are touched, null once loaded */
+    private volatile Supplier<JSONArray> loader;
 
     public JSONArray(JSONIElement... elements) {
         list.addAll(Arrays.asList(elements));
     }
 
+    /**
+     * Creates an array holding its elements in @list, which is adopted rather than copied
+     */
+    public JSONArray(List<JSONIElement> list) {
+        this.list = list;
+    }
+
+    /**
+     * Creates an array of integers held in @values, which is adopted rather than copied
+     */
+    public static JSONArray ofLongs(long... values) {
+        JSONArray array = new JSONArray();
+        array.list = new JSONLongList(values, values.length);
+        return array;
+    }
+
+    /**
+     * Creates an array of doubles held in @values, which is adopted rather than copied
+     */
+    public static JSONArray ofDoubles(double... values) {
+        JSONArray array = new JSONArray();
+        array.list = new JSONDoubleList(values, values.length);
+        return array;
+    }
+
     public JSONArray append(JSONIElement element) {
-        list.add(element);
+        List<JSONIElement> list = list();
+        if (list instanceof JSONLongList && element instanceof JSONInteger) {
+            ((JSONLongList) list).add(element.asLong());
+        } else if (list instanceof JSONDoubleList && element instanceof JSONDouble) {
+            ((JSONDoubleList) list).add(element.asDouble());
+        } else {
+            boxed().add(element);
+        }
         return this;
     }
 
     public JSONArray append(JSONIElement... elements) {
-        list.addAll(Arrays.asList(elements));
+        for (JSONIElement element : elements) {
+            append(element);
+        }
         return this;
     }
 
     public long size() {
-        return list.size();
+        return list().size();
     }
 
     public boolean isEmpty() {
@@ -65,67 +104,116 @@ public class JSONArray implements JSONIContainer<List<JSONIElement>>, Iterable<J
     }
 
     public void clear() {
-        list.clear();
+        list();
+        list = new ArrayList<>();
     }
 
+    /**
+     * @return
+     *      The elements, as a list that can be modified.
+     *      An array held in a primitive array is boxed first, and stays boxed: use {@link #asList()} to only read it.
+     */
     public List<JSONIElement> getValue() {
-        return list;
+        return boxed();
     }
 
-    public JSONIElement get(int index) {
-        return list.get(index);
+    /**
+     * @return
+     *      A read only view of the elements. Those of an array held in a primitive array are boxed as they are read.
+     */
+    public List<JSONIElement> asList() {
+        return Collections.unmodifiableList(list());
     }
 
-    public void stringify(FileWriter writer, int indentation, int currIndentation) throws IOException {
-        writer.write('[');
-        if (indentation >= 0)
-            writer.write('\n');
-        AtomicLong index = new AtomicLong();
-        for (JSONIElement element : list) {
-            for (int i = 0; i < indentation * (currIndentation + 1); ++i) {
-                writer.write(' ');
-            }
-            element.stringify(writer, indentation, currIndentation + 1);
-            if (index.incrementAndGet() < list.size()) {
-                writer.write(',');
-            }
-            if (indentation >= 0)
-                writer.write('\n');
+    /**
+     * @return
+     *      INTEGER or DOUBLE if the array is held in a primitive array of that type, null otherwise
+     */
+    public JSONType getPrimitiveType() {
+        List<JSONIElement> list = list();
+        if (list instanceof JSONLongList) {
+            return JSONType.INTEGER;
         }
-        for (int i = 0; i < indentation * currIndentation; ++i) {
-            writer.write(' ');
+        if (list instanceof JSONDoubleList) {
+            return JSONType.DOUBLE;
         }
-        writer.write(']');
+        return null;
     }
 
-    public void print(int indentation, int currIndentation) {
-        System.out.print("[");
-        if (indentation >= 0)
-            System.out.println();
-        AtomicLong index = new AtomicLong();
-        list.forEach(e -> {
-            for (int i = 0; i < indentation * (currIndentation + 1); ++i) {
-                System.out.print(" ");
-            }
-            e.print(indentation, currIndentation + 1);
-            if (index.incrementAndGet() < list.size()) {
-                System.out.print(",");
-            }
-            if (indentation >= 0)
-                System.out.println();
-        });
-        for (int i = 0; i < indentation * currIndentation; ++i) {
-            System.out.print(" ");
+    /**
+     * Reads the integer at @index, without boxing it if the array is held in a long[]
+     */
+    public long getLong(int index) {
+        List<JSONIElement> list = list();
+        if (list instanceof JSONLongList) {
+            return ((JSONLongList) list).longAt(index);
+        }
+        return list.get(index).asLong();
+    }
+
+    /**
+     * Reads the number at @index as a double, without boxing it if the array is held in a primitive array
+     */
+    public double getDouble(int index) {
+        List<JSONIElement> list = list();
+        if (list instanceof JSONDoubleList) {
+            return ((JSONDoubleList) list).doubleAt(index);
+        }
+        if (list instanceof JSONLongList) {
+            return ((JSONLongList) list).longAt(index);
+        }
+        JSONIElement element = list.get(index);
+        return element instanceof JSONInteger ? element.asLong() : element.asDouble();
+    }
+
+    /**
+     * @return
+     *      The integers of the array, straight from the long[] it is held in if it is
+     */
+    public LongStream longs() {
+        List<JSONIElement> list = list();
+        if (list instanceof JSONLongList) {
+            JSONLongList longs = (JSONLongList) list;
+            return Arrays.stream(longs.values, 0, longs.size);
         }
-        System.out.print("]");
+        return list.stream().mapToLong(JSONIElement::asLong);
+    }
+
+    /**
+     * @return
+     *      The numbers of the array as doubles, straight from the primitive array it is held in if it is
+     */
+    public DoubleStream doubles() {
+        List<JSONIElement> list = list();
+        if (list instanceof JSONDoubleList) {
+            JSONDoubleList doubles = (JSONDoubleList) list;
+            return Arrays.stream(doubles.values, 0, doubles.size);
+        }
+        if (list instanceof JSONLongList) {
+            JSONLongList longs = (JSONLongList) list;
+            return Arrays.stream(longs.values, 0, longs.size).asDoubleStream();
+        }
+        return IntStream.range(0, list.size()).mapToDouble(this::getDouble);
+    }
+
+    public JSONIElement get(int index) {
+        return list().get(index);
+    }
+
+    /**
+     * Get the element at a path, whose first segment is an index of this array.
+     * @see JSONObject#get(String)
+     */
+    public JSONIElement get(JSONPath path) {
+        return path.get(this);
     }
 
     public Iterator<JSONIElement> iterator() {
-        return list.iterator();
+        return list().iterator();
     }
 
     public Stream<JSONIElement> stream() {
-        return list.stream();
+        return list().stream();
     }
 
     public String getType() {
@@ -133,21 +221,68 @@ public class JSONArray implements JSONIContainer<List<JSONIElement>>, Iterable<J
     }
 
     public String toString() {
-        return String.valueOf(list);
+        return String.valueOf(list());
     }
 
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         JSONArray other = (JSONArray) o;
-        return list.equals(other.list);
+        return list().equals(other.list());
     }
 
     public JSONType getElementType() {
         return JSONType.ARRAY;
     }
 
+    /**
+     * Creates an array whose elements are only built the first time it is accessed.
+     * @see me.sthat.jjson.utils.JSON.Option#LAZY
+     *
+     * @param loader
+     *      Builds the actual array. Its elements are adopted by the array returned here.
+     */
+    public static JSONArray lazy(Supplier<JSONArray> loader) {
+        JSONArray array = new JSONArray();
+        array.loader = loader;
+        return array;
+    }
+
+    /**
+     * @return
+     *      true if the elements have been built already
+     */
+    public boolean isLoaded() {
+        return loader == null;
+    }
+
+    /**
+     * @return
+     *      The elements in a list that takes any of them, boxing them out of a primitive array if needed
+     */
+    private List<JSONIElement> boxed() {
+        List<JSONIElement> list = list();
+        if (list instanceof JSONLongList || list instanceof JSONDoubleList) {
+            list = new ArrayList<>(list);
+            this.list = list;
+        }
+        return list;
+    }
+
+    private List<JSONIElement> list() {
+        if (loader != null) {
+            synchronized (this) {
+                Supplier<JSONArray> pending = loader;
+                if (pending != null) {
+                    list = pending.get().list();
+                    loader = null;
+                }
+            }
+        }
+        return list;
+    }
+
     public int hashCode() {
-        return Objects.hash(list);
+        return Objects.hash(list());
     }
 }
@@ -33,6 +33,17 @@ package me.sthat.jjson.types;
  */
 public class JSONBoolean extends JSONAbstractValue<Boolean> {
 
+    public static final JSONBoolean TRUE = new JSONBoolean(true);
+    public static final JSONBoolean FALSE = new JSONBoolean(false);
+
+    /**
+     * @return
+     *      The shared instance for @value, values are immutable so there is no need for more than two
+     */
+    public static JSONBoolean valueOf(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
     public JSONBoolean(boolean value) {
         super(value);
     }
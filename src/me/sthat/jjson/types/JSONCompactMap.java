@@ -0,0 +1,356 @@
+package me.sthat.jjson.types;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONCompactMap holds the members of an object in two parallel arrays, keys and values, in insertion order.
+ * Keys are found by scanning the array, which for the handful of keys most objects have beats hashing.
+ * Past {@link #THRESHOLD} keys a hash index over the arrays is built, so lookups stay constant time on big objects.
+ * <br>
+ * Objects built with a {@link JSONShape} don't have keys of their own: they share them through the shape,
+ * for as long as keys are only appended. Anything else, such as a removal, gives the object its own copy of them.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+final class JSONCompactMap extends AbstractMap<String, JSONIElement> {
+
+    static final int THRESHOLD = 8;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    /* The shared keys, null once the object has its own */
+    private JSONShape shape;
+
+    private String[] keys;
+    private JSONIElement[] values;
+    private int size = 0;
+
+    /* Open addressing table of slot + 1, 0 is empty. Null while the object is small */
+    private int[] index;
+
+    /* Counts structural changes, so iterators can tell when the map changed under them */
+    private int modifications = 0;
+
+    JSONCompactMap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    JSONCompactMap(int capacity) {
+        this.keys = new String[Math.max(1, capacity)];
+        this.values = new JSONIElement[Math.max(1, capacity)];
+    }
+
+    /**
+     * Creates an empty map whose keys are shared through the tree of @root
+     */
+    JSONCompactMap(JSONShape root) {
+        this.shape = root;
+        this.values = new JSONIElement[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return
+     *      The slot of @key, or -1 if there is none
+     */
+    private int slotOf(Object key) {
+        if (shape != null) {
+            return shape.slotOf(key);
+        }
+        if (index == null) {
+            String[] keys = this.keys;
+            for (int i = 0; i < size; ++i) {
+                String k = keys[i];
+                if (k == key || (k != null && k.equals(key))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        return slotOf(index, keys, key);
+    }
+
+    /**
+     * @return
+     *      The slot of @key in @keys, looked up through @index, or -1 if there is none
+     */
+    static int slotOf(int[] index, String[] keys, Object key) {
+        int mask = index.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            int slot = index[i] - 1;
+            if (slot < 0) {
+                return -1;
+            }
+            String k = keys[slot];
+            if (k == key || (k != null && k.equals(key))) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * @return
+     *      An index over the first @size of @keys, at most half full
+     */
+    static int[] index(String[] keys, int size) {
+        int[] index = new int[Integer.highestOneBit(size * 2 - 1) << 1];
+        for (int slot = 0; slot < size; ++slot) {
+            insert(index, keys, slot);
+        }
+        return index;
+    }
+
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private void reindex() {
+        index = size > THRESHOLD ? index(keys, size) : null;
+    }
+
+    private static void insert(int[] index, String[] keys, int slot) {
+        int mask = index.length - 1;
+        int i = hash(keys[slot]) & mask;
+        while (index[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot + 1;
+    }
+
+    /**
+     * Gives the object its own copy of the keys, leaving the shape
+     */
+    private void unshare() {
+        if (shape == null) {
+            return;
+        }
+        keys = Arrays.copyOf(shape.keys, values.length);
+        shape = null;
+        reindex();
+    }
+
+    private String keyAt(int slot) {
+        return shape != null ? shape.keys[slot] : keys[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean containsKey(Object key) {
+        return slotOf(key) >= 0;
+    }
+
+    public JSONIElement get(Object key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : values[slot];
+    }
+
+    public JSONIElement put(String key, JSONIElement value) {
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            JSONIElement previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        if (shape != null) {
+            JSONShape next = shape.child(key);
+            if (next != null) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size * 2);
+                }
+                shape = next;
+                values[size++] = value;
+                ++modifications;
+                return null;
+            }
+            unshare();
+        }
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        ++size;
+        ++modifications;
+
+        /* Keeps the table at most half full */
+        if (index == null ? size > THRESHOLD : size * 2 > index.length) {
+            reindex();
+        } else if (index != null) {
+            insert(index, keys, size - 1);
+        }
+        return null;
+    }
+
+    public JSONIElement remove(Object key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : removeAt(slot);
+    }
+
+    private JSONIElement removeAt(int slot) {
+        unshare();
+        JSONIElement previous = values[slot];
+        System.arraycopy(keys, slot + 1, keys, slot, size - slot - 1);
+        System.arraycopy(values, slot + 1, values, slot, size - slot - 1);
+        --size;
+        keys[size] = null;
+        values[size] = null;
+        ++modifications;
+        if (index != null) {
+            reindex();
+        }
+        return previous;
+    }
+
+    public void clear() {
+        if (shape != null) {
+            shape = shape.getRoot();
+        } else {
+            Arrays.fill(keys, 0, size, null);
+        }
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        index = null;
+        ++modifications;
+    }
+
+    public Set<Entry<String, JSONIElement>> entrySet() {
+        return new AbstractSet<Entry<String, JSONIElement>>() {
+            public Iterator<Entry<String, JSONIElement>> iterator() {
+                return new Members();
+            }
+
+            public int size() {
+                return size;
+            }
+
+            public void clear() {
+                JSONCompactMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Walks the slots in insertion order
+     */
+    private final class Members implements Iterator<Entry<String, JSONIElement>> {
+
+        private int next = 0, last = -1;
+        private int expected = modifications;
+
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        public Entry<String, JSONIElement> next() {
+            if (expected != modifications) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= size) {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return new Member(last);
+        }
+
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (expected != modifications) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+            expected = modifications;
+        }
+    }
+
+    /**
+     * An entry reading through to its slot, so setValue writes into the map
+     */
+    private final class Member implements Entry<String, JSONIElement> {
+
+        private final int slot;
+
+        private Member(int slot) {
+            this.slot = slot;
+        }
+
+        public String getKey() {
+            return keyAt(slot);
+        }
+
+        public JSONIElement getValue() {
+            return values[slot];
+        }
+
+        public JSONIElement setValue(JSONIElement value) {
+            JSONIElement previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Entry<?, ?> other = (Entry<?, ?>) o;
+            return eq(getKey(), other.getKey()) && eq(getValue(), other.getValue());
+        }
+
+        public int hashCode() {
+            return (getKey() == null ? 0 : getKey().hashCode()) ^ (getValue() == null ? 0 : getValue().hashCode());
+        }
+
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    private static boolean eq(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+}
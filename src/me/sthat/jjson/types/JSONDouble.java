@@ -33,8 +33,33 @@ package me.sthat.jjson.types;
  */
 public class JSONDouble extends JSONAbstractValue<Double> {
 
+    private final double value;
+
     public JSONDouble(double value) {
-        super(value);
+        this.value = value;
+    }
+
+    public Double getValue() {
+        return value;
+    }
+
+    public double asDouble() {
+        return value;
+    }
+
+    public String toString() {
+        return Double.toString(value);
+    }
+
+    /* Same as Double#equals: NaN equals itself, 0.0 and -0.0 differ */
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Double.doubleToLongBits(value) == Double.doubleToLongBits(((JSONDouble) o).value);
+    }
+
+    public int hashCode() {
+        return Double.hashCode(value);
     }
 
     public String getType() {
@@ -1,7 +1,10 @@
 package me.sthat.jjson.types;
 
+import me.sthat.jjson.utils.JSONWriter;
+
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /*
  * MIT License
@@ -38,8 +41,34 @@ import java.io.IOException;
  */
 public interface JSONIElement {
 
-    void stringify(FileWriter writer, int indentation, int currIndentation) throws IOException;
-    void print(int indentation, int currIndentation);
+    /**
+     * Writes the element to @out, which is flushed before returning.
+     * Output goes through a {@link JSONWriter}, so it reaches @out in large chunks whatever its type.
+     *
+     * @param indentation
+     *              The indentation to use.<br>
+     *              - Set 0 to disable.<br>
+     *              - Set -1 to print each element to a single line.
+     * @param currIndentation
+     *              How many levels deep the element is nested
+     */
+    default void stringify(Appendable out, int indentation, int currIndentation) throws IOException {
+        JSONWriter writer = new JSONWriter(out, indentation);
+        writer.write(this, currIndentation);
+        writer.flush();
+    }
+
+    default void stringify(FileWriter writer, int indentation, int currIndentation) throws IOException {
+        stringify((Appendable) writer, indentation, currIndentation);
+    }
+
+    default void print(int indentation, int currIndentation) {
+        try {
+            stringify(System.out, indentation, currIndentation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
     @Deprecated
     String getType();
@@ -33,8 +33,54 @@ package me.sthat.jjson.types;
  */
 public class JSONInteger extends JSONAbstractValue<Long> {
 
+    private static final int CACHE_LOW = -128, CACHE_HIGH = 1023;
+
+    /* Shared instances of the integers documents use the most, such as ids, counters and flags */
+    private static final JSONInteger[] CACHE = new JSONInteger[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; ++i) {
+            CACHE[i] = new JSONInteger(i + CACHE_LOW);
+        }
+    }
+
+    private final long value;
+
+    /**
+     * @return
+     *      A shared instance for small values, a new one otherwise
+     */
+    public static JSONInteger valueOf(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[(int) value - CACHE_LOW];
+        }
+        return new JSONInteger(value);
+    }
+
     public JSONInteger(long value) {
-        super(value);
+        this.value = value;
+    }
+
+    public Long getValue() {
+        return value;
+    }
+
+    public long asLong() {
+        return value;
+    }
+
+    public String toString() {
+        return Long.toString(value);
+    }
+
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return value == ((JSONInteger) o).value;
+    }
+
+    public int hashCode() {
+        return Long.hashCode(value);
     }
 
     public String getType() {
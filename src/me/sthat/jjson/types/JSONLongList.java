@@ -0,0 +1,83 @@
+package me.sthat.jjson.types;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONLongList holds the elements of an array made only of integers in a long[], see {@link JSONArray#ofLongs(long...)}.
+ * Elements are boxed into a JSONInteger each time they are read.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+final class JSONLongList extends AbstractList<JSONIElement> implements RandomAccess {
+
+    long[] values;
+    int size;
+
+    JSONLongList(long[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    public JSONIElement get(int index) {
+        return JSONInteger.valueOf(longAt(index));
+    }
+
+    long longAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return values[index];
+    }
+
+    void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(8, size * 2));
+        }
+        values[size++] = value;
+        ++modCount;
+    }
+
+    /**
+     * Removes the element at @index, shifting the following ones down, as iterators of the array do
+     */
+    public JSONIElement remove(int index) {
+        JSONIElement removed = get(index);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        --size;
+        ++modCount;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+}
@@ -33,6 +33,9 @@ package me.sthat.jjson.types;
  */
 public class JSONNull extends JSONAbstractValue<Object> {
 
+    /* The shared instance, any null is as good as another */
+    public static final JSONNull NULL = new JSONNull();
+
     public JSONNull() {
         super(null);
     }
@@ -1,14 +1,9 @@
 package me.sthat.jjson.types;
 
-import me.sthat.jjson.exceptions.JSONInvalidPath;
-
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -46,10 +41,25 @@ import java.util.stream.Stream;
  */
 public class JSONObject implements JSONIContainer<Map<String, JSONIElement>>, Iterable<String> {
 
-    private final Map<String, JSONIElement> map;
+    private Map<String, JSONIElement> map;
+
+    /* Builds the content the first time it is touched, null once loaded */
+    private volatile Supplier<JSONObject> loader;
 
+    /**
+     * Creates an empty object, whose members are kept in insertion order.
+     * Small objects are held in flat arrays rather than in a hash table, see JSONCompactMap.
+     */
     public JSONObject() {
-         this.map = new HashMap<>();
+         this.map = new JSONCompactMap();
+    }
+
+    /**
+     * Creates an empty object sharing its keys with the other objects of the same shape in the tree of @root.
+     * @see JSONShape
+     */
+    public JSONObject(JSONShape root) {
+        this.map = new JSONCompactMap(root);
     }
 
     public JSONObject(Map<String, JSONIElement> map) {
@@ -57,47 +67,47 @@ public class JSONObject implements JSONIContainer<Map<String, JSONIElement>>, It
     }
 
     public JSONObject append(String key, JSONIElement element) {
-        map.put(key, element);
+        map().put(key, element);
         return this;
     }
 
     public JSONObject append(String key, String value) {
-        map.put(key, new JSONString(value));
+        map().put(key, new JSONString(value));
         return this;
     }
 
     public JSONObject append(String key, double value) {
-        map.put(key, new JSONDouble(value));
+        map().put(key, new JSONDouble(value));
         return this;
     }
 
     public JSONObject append(String key, int value) {
-        map.put(key, new JSONInteger(value));
+        map().put(key, JSONInteger.valueOf(value));
         return this;
     }
 
     public JSONObject append(String key, boolean value) {
-        map.put(key, new JSONBoolean(value));
+        map().put(key, JSONBoolean.valueOf(value));
         return this;
     }
 
     public JSONObject appendNull(String key) {
-        map.put(key, new JSONNull());
+        map().put(key, JSONNull.NULL);
         return this;
     }
 
     public JSONObject append(String key, JSONIElement... elements) {
-        map.put(key, new JSONArray(elements));
+        map().put(key, new JSONArray(elements));
         return this;
     }
 
     public JSONObject append(String key, Map<String, JSONIElement> map) {
-        map.put(key, new JSONObject(map));
+        map().put(key, new JSONObject(map));
         return this;
     }
 
     public long size() {
-        return map.size();
+        return map().size();
     }
 
     public boolean isEmpty() {
@@ -105,23 +115,23 @@ public class JSONObject implements JSONIContainer<Map<String, JSONIElement>>, It
     }
 
     public String toString() {
-        return String.valueOf(map.toString());
+        return String.valueOf(map().toString());
     }
 
     public Stream<String> keyStream() {
-        return map.keySet().stream();
+        return map().keySet().stream();
     }
 
     public Stream<JSONIElement> valueStream() {
-        return map.values().stream();
+        return map().values().stream();
     }
 
     public void clear() {
-        map.clear();
+        map().clear();
     }
 
     public Map<String, JSONIElement> getValue() {
-        return map;
+        return map();
     }
 
     /**
@@ -138,73 +148,18 @@ public class JSONObject implements JSONIContainer<Map<String, JSONIElement>>, It
      *      The element at the specified path or null if it couldn't be found.
      */
     public JSONIElement get(String key) {
-        String[] path = key.split("\\.");
-        JSONIElement element = this;
-        for (String str : path) {
-            if (element instanceof JSONObject) {
-                element = ((JSONObject)element).map.get(str);
-            } else if (element instanceof JSONArray) {
-                element = ((JSONArray)element).get(Integer.parseInt(str));
-            } else {
-                throw new JSONInvalidPath("Cannot get property " + str + " of " + element.getType());
-            }
-
-            if (element == null) {
-                return null;
-            }
-        }
-
-        return element;
-    }
-
-    public void stringify(FileWriter writer, int indentation, int currIndentation) throws IOException {
-        writer.write('{');
-        if (indentation >= 0)
-            writer.write('\n');
-        AtomicLong index = new AtomicLong(0);
-        for (String key : map.keySet()) {
-            for (int i = 0; i < indentation * (currIndentation + 1); ++i) {
-                writer.write(' ');
-            }
-            writer.write("\"" + key + "\": ");
-            map.get(key).stringify(writer, indentation, currIndentation + 1);
-            if (index.incrementAndGet() < map.size()) {
-                writer.write(',');
-            }
-            if (indentation >= 0)
-                writer.write('\n');
-        }
-        for (int i = 0; i < indentation * currIndentation; ++i) {
-            writer.write(' ');
-        }
-        writer.write('}');
+        return JSONPath.cached(key).get(this);
     }
 
-    public void print(int indentation, int currIndentation) {
-        System.out.print("{");
-        if (indentation >= 0)
-            System.out.println();
-        AtomicLong index = new AtomicLong(0);
-        for (String key : map.keySet()) {
-            for (int i = 0; i < indentation * (currIndentation + 1); ++i) {
-                System.out.print(" ");
-            }
-            System.out.print("\"" + key + "\": ");
-            map.get(key).print(indentation, currIndentation + 1);
-            if (index.incrementAndGet() < map.size()) {
-                System.out.print(",");
-            }
-            if (indentation >= 0)
-                System.out.println();
-        }
-        for (int i = 0; i < indentation * currIndentation; ++i) {
-            System.out.print(" ");
-        }
-        System.out.print("}");
+    /**
+     * Get the element at a path compiled beforehand, see {@link #get(String)}
+     */
+    public JSONIElement get(JSONPath path) {
+        return path.get(this);
     }
 
     public Iterator<String> iterator() {
-        return map.keySet().iterator();
+        return map().keySet().iterator();
     }
 
     public String getType() {
@@ -215,14 +170,48 @@ public class JSONObject implements JSONIContainer<Map<String, JSONIElement>>, It
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         JSONObject other = (JSONObject) o;
-        return map.equals(other.map);
+        return map().equals(other.map());
     }
 
     public JSONType getElementType() {
         return JSONType.OBJECT;
     }
 
+    /**
+     * Creates an object whose content is only built the first time it is accessed.
+     * @see me.sthat.jjson.utils.JSON.Option#LAZY
+     *
+     * @param loader
+     *      Builds the actual object. Its content is adopted by the object returned here.
+     */
+    public static JSONObject lazy(Supplier<JSONObject> loader) {
+        JSONObject object = new JSONObject();
+        object.loader = loader;
+        return object;
+    }
+
+    /**
+     * @return
+     *      true if the content has been built already
+     */
+    public boolean isLoaded() {
+        return loader == null;
+    }
+
+    private Map<String, JSONIElement> map() {
+        if (loader != null) {
+            synchronized (this) {
+                Supplier<JSONObject> pending = loader;
+                if (pending != null) {
+                    map = pending.get().map();
+                    loader = null;
+                }
+            }
+        }
+        return map;
+    }
+
     public int hashCode() {
-        return Objects.hash(map);
+        return Objects.hash(map());
     }
 }
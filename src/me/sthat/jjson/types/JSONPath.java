@@ -0,0 +1,168 @@
+package me.sthat.jjson.types;
+
+import me.sthat.jjson.exceptions.JSONInvalidPath;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONPath is a dotted path, as accepted by {@link JSONObject#get(String)}, split once and for all.
+ * Segments that are valid indexes are parsed up front, so a lookup only costs the map and list hops.
+ * <br>
+ * Paths are immutable and can be shared between threads.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public final class JSONPath {
+
+    /* The last paths compiled from a String, a new one replaces whatever was in its slot */
+    private static final int CACHE_SIZE = 256;
+    private static final JSONPath[] CACHE = new JSONPath[CACHE_SIZE];
+
+    /* Returned by parseIndex for a segment that is not an index */
+    public static final long NOT_AN_INDEX = Long.MIN_VALUE;
+
+    private final String path;
+    private final String[] keys;
+    private final int[] indexes;
+    private final boolean[] numeric;
+
+    private JSONPath(String path) {
+        this.path = path;
+        this.keys = path.split("\\.");
+        this.indexes = new int[keys.length];
+        this.numeric = new boolean[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            long index = parseIndex(keys[i]);
+            if (index != NOT_AN_INDEX) {
+                indexes[i] = (int) index;
+                numeric[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Reads @segment as an array index the way {@link Integer#parseInt(String)} does, an optional sign then digits
+     * within the int range, without throwing when it is a name.
+     *
+     * @return
+     *      The index, or NOT_AN_INDEX if @segment is not one
+     */
+    public static long parseIndex(String segment) {
+        int length = segment.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (segment.charAt(0) == '-' || segment.charAt(0) == '+')) {
+            negative = segment.charAt(0) == '-';
+            ++i;
+        }
+        if (i == length) {
+            return NOT_AN_INDEX;
+        }
+
+        long limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long value = 0;
+        for (; i < length; ++i) {
+            int digit = Character.digit(segment.charAt(i), 10);
+            if (digit < 0) {
+                return NOT_AN_INDEX;
+            }
+            value = value * 10 + digit;
+            if (value > limit) {
+                return NOT_AN_INDEX;
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Compiles @path, such as "world.entities.2.name"
+     */
+    public static JSONPath compile(String path) {
+        return new JSONPath(path);
+    }
+
+    /**
+     * Compiles @path, or returns the same path compiled by a recent call
+     */
+    static JSONPath cached(String path) {
+        int hash = path.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        JSONPath compiled = CACHE[slot];
+        if (compiled == null || !compiled.path.equals(path)) {
+            compiled = new JSONPath(path);
+            CACHE[slot] = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * @return
+     *      The element at this path starting from @element, or null if it couldn't be found.
+     * @throws JSONInvalidPath
+     *      If the path goes through a value that is neither an object nor an array
+     */
+    public JSONIElement get(JSONIElement element) {
+        for (int i = 0; i < keys.length; ++i) {
+            if (element instanceof JSONObject) {
+                element = ((JSONObject) element).getValue().get(keys[i]);
+            } else if (element instanceof JSONArray) {
+                element = ((JSONArray) element).get(numeric[i] ? indexes[i] : Integer.parseInt(keys[i]));
+            } else {
+                throw new JSONInvalidPath("Cannot get property " + keys[i] + " of " + element.getType());
+            }
+
+            if (element == null) {
+                return null;
+            }
+        }
+
+        return element;
+    }
+
+    /**
+     * @return
+     *      How many segments the path is made of
+     */
+    public int length() {
+        return keys.length;
+    }
+
+    public String toString() {
+        return path;
+    }
+
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return path.equals(((JSONPath) o).path);
+    }
+
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+}
@@ -0,0 +1,174 @@
+package me.sthat.jjson.types;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONShape is the key structure shared by objects with the same keys in the same order, the way JS engines use hidden classes.
+ * Each shape maps its keys to slots, objects of that shape only hold their values.
+ * <br>
+ * Shapes form a tree: appending a key moves an object from a shape to its child for that key,
+ * and the first object to take a transition creates it for all the others.
+ * A tree starts from a {@link #root()}, usually one per parse so it doesn't outlive the documents it describes.
+ * Trees are bounded: past {@link #MAX_KEYS} keys, or {@link #MAX_SHAPES} shapes in the tree,
+ * objects keep their own keys instead. Whatever builds objects for a long time starts a new tree once its own {@link #isFull()}.
+ * <br>
+ * Shapes are immutable once created and transitions are safe to take from any thread.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public final class JSONShape {
+
+    public static final int MAX_KEYS = 64;
+    public static final int MAX_SHAPES = 1 << 14;
+
+    private final JSONShape root;
+    final String[] keys;
+
+    /* Open addressing table of slot + 1 over keys, null while there are few enough keys to scan */
+    private final int[] index;
+
+    /* The only child so far, or a concurrent map of them by key once there are more, which children are then added to */
+    private volatile Object transitions;
+
+    /* How many shapes the tree holds, only kept up to date on the root */
+    private int count = 1;
+
+    private JSONShape(JSONShape root, String[] keys) {
+        this.root = root == null ? this : root;
+        this.keys = keys;
+        this.index = keys.length > JSONCompactMap.THRESHOLD ? JSONCompactMap.index(keys, keys.length) : null;
+    }
+
+    /**
+     * @return
+     *      The empty shape at the root of a new tree
+     */
+    public static JSONShape root() {
+        return new JSONShape(null, new String[0]);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return
+     *      The slot of @key, or -1 if it is not part of this shape
+     */
+    int slotOf(Object key) {
+        if (index == null) {
+            String[] keys = this.keys;
+            for (int i = 0; i < keys.length; ++i) {
+                String k = keys[i];
+                if (k == key || k.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        return JSONCompactMap.slotOf(index, keys, key);
+    }
+
+    /**
+     * @return
+     *      The shape made of the keys of this one followed by @key, which must not be one of them.
+     *      null if the tree can't grow any further that way.
+     */
+    JSONShape child(String key) {
+        JSONShape child = find(transitions, key);
+        if (child != null) {
+            return child;
+        }
+
+        synchronized (root) {
+            Object current = transitions;
+            child = find(current, key);
+            if (child != null) {
+                return child;
+            }
+            if (key == null || keys.length >= MAX_KEYS || root.count >= MAX_SHAPES) {
+                return null;
+            }
+
+            String[] grown = Arrays.copyOf(keys, keys.length + 1);
+            grown[keys.length] = key;
+            child = new JSONShape(root, grown);
+            ++root.count;
+
+            if (current == null) {
+                transitions = child;
+            } else if (current instanceof JSONShape) {
+                JSONShape only = (JSONShape) current;
+                Map<String, JSONShape> children = new ConcurrentHashMap<>();
+                children.put(only.keys[keys.length], only);
+                children.put(key, child);
+                transitions = children;
+            } else {
+                @SuppressWarnings("unchecked")
+                Map<String, JSONShape> children = (Map<String, JSONShape>) current;
+                children.put(key, child);
+            }
+            return child;
+        }
+    }
+
+    /**
+     * @return
+     *      true once the tree this shape is part of holds {@link #MAX_SHAPES} shapes,
+     *      from then on objects built from it keep their own keys for any new layout
+     */
+    public boolean isFull() {
+        return root.count >= MAX_SHAPES;
+    }
+
+    /**
+     * @return
+     *      The shape with no keys of the tree this one is part of
+     */
+    JSONShape getRoot() {
+        return root;
+    }
+
+    private JSONShape find(Object transitions, String key) {
+        if (transitions instanceof JSONShape) {
+            JSONShape only = (JSONShape) transitions;
+            String last = only.keys[keys.length];
+            return last == key || last.equals(key) ? only : null;
+        }
+        if (transitions != null) {
+            @SuppressWarnings("unchecked")
+            Map<String, JSONShape> children = (Map<String, JSONShape>) transitions;
+            return children.get(key);
+        }
+        return null;
+    }
+
+}
@@ -45,4 +45,70 @@ public class JSONString extends JSONAbstractValue<String> {
         return JSONType.STRING;
     }
 
+    public String toString() {
+        return quote(getValue());
+    }
+
+    /**
+     * Wraps @value in quotes, escaping the characters JSON doesn't allow inside a string
+     */
+    public static String quote(String value) {
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                break;
+            }
+            ++i;
+        }
+        if (i == length) {
+            return "\"" + value + "\"";
+        }
+
+        StringBuilder builder = new StringBuilder(length + 16);
+        builder.append('"').append(value, 0, i);
+        for (; i < length; ++i) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': {
+                    builder.append("\\\"");
+                    break;
+                }
+                case '\\': {
+                    builder.append("\\\\");
+                    break;
+                }
+                case '\n': {
+                    builder.append("\\n");
+                    break;
+                }
+                case '\r': {
+                    builder.append("\\r");
+                    break;
+                }
+                case '\t': {
+                    builder.append("\\t");
+                    break;
+                }
+                case '\b': {
+                    builder.append("\\b");
+                    break;
+                }
+                case '\f': {
+                    builder.append("\\f");
+                    break;
+                }
+                default: {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        return builder.append('"').toString();
+    }
+
 }
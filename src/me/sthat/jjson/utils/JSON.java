@@ -1,9 +1,14 @@
 package me.sthat.jjson.utils;
 
-import me.sthat.jjson.exceptions.JSONBadFormat;
 import me.sthat.jjson.types.*;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 /*
  * MIT License
@@ -48,28 +53,249 @@ public class JSON {
      *              @see Source
      * @param source Tells how to use @string.<br>
      *               If @source is set to <b>FILEPATH</b>, it will open the file at @string and load the document from its content.<br>
-     *               If @source is set to <b>BUFFER</b>, the json will be loaded reading directly from @string
+     *               If @source is set to <b>BUFFER</b>, the json will be loaded reading directly from @string<br>
+     *               If @source is set to <b>MMAP</b>, the file at @string is memory mapped and read in place, without copying it to the heap.
      * @return
      *              The JSON document just loaded.<br>
      *              It may an instance of <b>JSONObject</b>, <b>JSONArray</b>, <b>JSONBoolean</b>, <b>JSONInteger</b>, <b>JSONDouble</b>, <b>JSONNull</b> or <b>JSONString</b>.<br>
      *              It's always better to check the type before using the value.
+     * @throws me.sthat.jjson.exceptions.JSONUnexpectedToken
+     *              If anything but whitespace follows the value. Use {@link #documents(InputStream, Option...)} for values following each other.
      */
     public static JSONIElement load(String string, Source source) {
-        String jsonString;
-        if (source.equals(Source.FILEPATH)) {
-            try {
-                jsonString = loadFileTo(string);
-            } catch (IOException e) {
-                e.printStackTrace();
-                return null;
+        return load(string, source, new Option[0]);
+    }
+
+    /**
+     * Loads a JSON file, as {@link #load(String, Source)} does
+     *
+     * @param options
+     *              Tunes how the document is loaded.
+     *              @see Option
+     */
+    public static JSONIElement load(String string, Source source, Option... options) {
+        if (!source.equals(Source.BUFFER) && !new File(string).exists()) {
+            return null;
+        }
+
+        boolean offHeap = isSet(Option.OFF_HEAP, options);
+        boolean lazy = !offHeap && isSet(Option.LAZY, options);
+        boolean parallel = !offHeap && isSet(Option.PARALLEL, options);
+        JSONSource input;
+        try {
+            if (lazy && !source.equals(Source.BUFFER)) {
+                /* Lazy values may read the file long after this returns. A channel got from a stream closes once unreachable */
+                input = new JSONSourceMapped(new FileInputStream(string).getChannel());
+            } else {
+                /* PARALLEL needs random access, which files only have when mapped */
+                input = open(string, parallel && source.equals(Source.FILEPATH) ? Source.MMAP : source);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        boolean keepOpen = false;
+        try {
+            configure(input, options);
+            if (offHeap) {
+                return JSONTape.parse(input).root();
+            }
+
+            JSONIElement element;
+            if (lazy) {
+                element = JSONParser.jsonParseLazy(input);
+            } else if (parallel) {
+                element = JSONParser.jsonParseParallel(input, ForkJoinPool.commonPool());
+            } else {
+                element = JSONParser.jsonParseNextItem(input);
+            }
+            JSONParser.jsonAssertEnd(input);
+            /* Lazy values read the file again through the channel, unless it is mapped whole */
+            keepOpen = lazy && input instanceof JSONSourceMapped && !((JSONSourceMapped) input).isWhollyMapped();
+            return element;
+        } catch (UncheckedIOException e) {
+            e.getCause().printStackTrace();
+            return null;
+        } finally {
+            if (!keepOpen) {
+                close(input);
             }
-        } else if (source.equals(Source.BUFFER)) {
-            jsonString = string;
-        } else {
-            throw new IllegalArgumentException("No valid source were specified to load " + string);
         }
+    }
 
-        return jsonString != null ? JSONParser.jsonFromString(jsonString) : null;
+    /**
+     * Loads only some paths of a JSON document, as {@link #load(String, Source)} does.
+     * Anything outside of @paths is skipped without being built, so the cost follows what is read rather than the document size.
+     *
+     * @param paths
+     *              The paths to load, in the syntax of {@link JSONObject#get(String)}, such as "world.entities.2.name".<br>
+     *              Array elements before the highest index asked for are loaded as nulls, so the same paths still work on the result.
+     *              @see JSONProjection
+     */
+    public static JSONIElement load(String string, Source source, Set<String> paths, Option... options) {
+        if (!source.equals(Source.BUFFER) && !new File(string).exists()) {
+            return null;
+        }
+
+        JSONSource input;
+        try {
+            input = open(string, source);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        try {
+            JSONIElement element = JSONParser.jsonParseProjected(configure(input, options), JSONProjection.of(paths));
+            JSONParser.jsonAssertEnd(input);
+            return element;
+        } catch (UncheckedIOException e) {
+            e.getCause().printStackTrace();
+            return null;
+        } finally {
+            close(input);
+        }
+    }
+
+    /**
+     * Loads a JSON document from a UTF-8 encoded stream.
+     * The bytes are parsed as they are read, the stream is never copied to a String first.
+     *
+     * @param stream
+     *              The stream to read from. It is not closed.
+     * @param options
+     *              Tunes how the document is loaded.
+     * @return
+     *              The JSON document just loaded.
+     * @throws IOException
+     *              If the stream couldn't be read
+     */
+    public static JSONIElement load(InputStream stream, Option... options) throws IOException {
+        return load(Channels.newChannel(stream), options);
+    }
+
+    /**
+     * Loads a JSON document from a UTF-8 encoded channel.
+     * The bytes are parsed as they are read, the channel is never copied to a String first.
+     *
+     * @param channel
+     *              The channel to read from. It is not closed.
+     * @param options
+     *              Tunes how the document is loaded.
+     * @return
+     *              The JSON document just loaded.
+     * @throws IOException
+     *              If the channel couldn't be read
+     */
+    public static JSONIElement load(ReadableByteChannel channel, Option... options) throws IOException {
+        try {
+            JSONSource input = configure(new JSONSourceStream(channel), options);
+            if (isSet(Option.OFF_HEAP, options)) {
+                return JSONTape.parse(input).root();
+            }
+            JSONIElement element = JSONParser.jsonParseNextItem(input);
+            JSONParser.jsonAssertEnd(input);
+            return element;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Parses a document reporting its content to a handler, without building it
+     *
+     * @param string
+     *              The json source, as in {@link #load(String, Source)}
+     * @param source
+     *              Tells how to use @string
+     * @param handler
+     *              Receives each part of the document as it is scanned
+     * @param options
+     *              Tunes how the document is read.
+     * @throws IOException
+     *              If the file couldn't be read
+     */
+    public static void parse(String string, Source source, JSONHandler handler, Option... options) throws IOException {
+        JSONSource input = open(string, source);
+        try {
+            JSONParser.jsonParseNextItem(configure(input, options), handler);
+            JSONParser.jsonAssertEnd(input);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            close(input);
+        }
+    }
+
+    /**
+     * Opens a JSONReader over a document, to walk it token by token instead of loading it whole
+     *
+     * @param string
+     *              The json source, as in {@link #load(String, Source)}
+     * @param source
+     *              Tells how to use @string
+     * @param options
+     *              Tunes how the document is read.
+     * @return
+     *              A reader positioned before the first token. It must be closed once done.
+     * @throws IOException
+     *              If the file couldn't be opened
+     */
+    public static JSONReader reader(String string, Source source, Option... options) throws IOException {
+        return new JSONReader(configure(open(string, source), options));
+    }
+
+    /**
+     * Reads back to back JSON documents from a UTF-8 encoded stream, such as {..}{..}[..] or values separated by whitespace
+     *
+     * @param stream
+     *              The stream to read from. It is closed along with the JSONDocuments returned.
+     * @param options
+     *              Tunes how the documents are loaded.
+     * @return
+     *              The documents, as an iterator or through {@link JSONDocuments#stream()}. It must be closed once done.
+     */
+    public static JSONDocuments documents(InputStream stream, Option... options) {
+        return documents(Channels.newChannel(stream), options);
+    }
+
+    /**
+     * Reads back to back JSON documents from a UTF-8 encoded channel, as {@link #documents(InputStream, Option...)} does
+     *
+     * @param channel
+     *              The channel to read from. It is closed along with the JSONDocuments returned.
+     */
+    public static JSONDocuments documents(ReadableByteChannel channel, Option... options) {
+        return new JSONDocuments(configure(new JSONSourceStream(channel), options));
+    }
+
+    /**
+     * Reads a newline delimited JSON file, one record per line.
+     * Batches of lines are parsed in parallel on the common ForkJoinPool while the file is read.
+     *
+     * @param filepath
+     *              The path of the file to read
+     * @param options
+     *              Tunes how the records are loaded, UNORDERED and INTERN_KEYS apply.
+     * @return
+     *              The records, as an iterator or through {@link JSONLines#stream()}. It must be closed once done.
+     * @throws IOException
+     *              If the file couldn't be opened
+     */
+    public static JSONLines lines(String filepath, Option... options) throws IOException {
+        return lines(FileChannel.open(new File(filepath).toPath(), StandardOpenOption.READ), options);
+    }
+
+    /**
+     * Reads newline delimited JSON from a UTF-8 encoded channel, as {@link #lines(String, Option...)} does
+     *
+     * @param channel
+     *              The channel to read from. It is closed along with the JSONLines returned.
+     */
+    public static JSONLines lines(ReadableByteChannel channel, Option... options) {
+        return new JSONLines(channel, ForkJoinPool.commonPool(), JSONLines.DEFAULT_BATCH_SIZE,
+                2 * ForkJoinPool.getCommonPoolParallelism() + 1, !isSet(Option.UNORDERED, options), isSet(Option.INTERN_KEYS, options));
     }
 
     /**
@@ -93,43 +319,136 @@ public class JSON {
         if (!file.exists() && !file.createNewFile())
             throw new IOException("Cannot create file " + filepath);
 
-        FileWriter writer = new FileWriter(file);
-        element.stringify(writer, indentation, 0);
-        writer.close();
+        try (OutputStream stream = new FileOutputStream(file)) {
+            stringify(element, stream, indentation);
+        }
     }
 
-    private static String loadFileTo(String path) throws IOException {
-        File file = new File(path);
-        if (!file.exists()) {
-            return null;
-        }
+    /**
+     * Prints a JSON to a stream, encoded as UTF-8
+     *
+     * @param stream
+     *              The stream to print to. It is flushed but not closed.
+     * @see #stringify(JSONIElement, String, int)
+     */
+    public static void stringify(JSONIElement element, OutputStream stream, int indentation) throws IOException {
+        JSONContext.local().stringify(element, stream, indentation);
+    }
+
+    /**
+     * Prints a JSON to a PrintStream, such as System.out, encoded as UTF-8.
+     * A PrintStream is both an OutputStream and an Appendable, this picks the former.
+     * @see #stringify(JSONIElement, OutputStream, int)
+     */
+    public static void stringify(JSONIElement element, PrintStream stream, int indentation) throws IOException {
+        stringify(element, (OutputStream) stream, indentation);
+    }
 
-        StringBuilder builder = new StringBuilder();
-        BufferedReader reader = new BufferedReader(new FileReader(file));
+    /**
+     * @return
+     *              The JSON encoded as UTF-8
+     * @see #stringify(JSONIElement, String, int)
+     */
+    public static byte[] stringifyUTF8(JSONIElement element, int indentation) {
+        return JSONContext.local().stringifyUTF8(element, indentation);
+    }
 
-        boolean isString = false;
-        while (reader.ready()) {
-            char c = (char) reader.read();
-            if (c == '"') {
-                isString = !isString;
-            }
-            if ((c != ' ' && c != '\t' && c != '\n') || isString)
-                builder.append(c);
-        }
+    /**
+     * Prints a JSON to any Appendable, such as a Writer or a StringBuilder
+     *
+     * @param out
+     *              Where to print to. It is flushed if it can be, but not closed.
+     * @see #stringify(JSONIElement, String, int)
+     */
+    public static void stringify(JSONIElement element, Appendable out, int indentation) throws IOException {
+        JSONContext.local().stringify(element, out, indentation);
+    }
 
-        reader.close();
+    /**
+     * @return
+     *              The JSON as a String
+     * @see #stringify(JSONIElement, String, int)
+     */
+    public static String stringify(JSONIElement element, int indentation) {
+        return JSONContext.local().stringify(element, indentation);
+    }
 
-        if (isString) {
-            throw new JSONBadFormat("Missing closing quote");
+    private static JSONSource open(String string, Source source) throws IOException {
+        if (source.equals(Source.FILEPATH)) {
+            return new JSONSourceStream(FileChannel.open(new File(string).toPath(), StandardOpenOption.READ));
+        } else if (source.equals(Source.BUFFER)) {
+            return new JSONSourceString(string);
+        } else if (source.equals(Source.MMAP)) {
+            return new JSONSourceMapped(FileChannel.open(new File(string).toPath(), StandardOpenOption.READ));
+        } else {
+            throw new IllegalArgumentException("No valid source were specified to read " + string);
+        }
+    }
+
+    private static JSONSource configure(JSONSource input, Option... options) {
+        for (Option option : options) {
+            if (option.equals(Option.INTERN_KEYS)) {
+                input.setKeyCache(new JSONKeyCache());
+            }
         }
+        return input;
+    }
 
-        return builder.toString();
+    static boolean isSet(Option option, Option... options) {
+        for (Option o : options) {
+            if (o.equals(option)) {
+                return true;
+            }
+        }
+        return false;
     }
 
+    private static void close(JSONSource input) {
+        if (input instanceof Closeable) {
+            try {
+                ((Closeable) input).close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
 
     public enum Source {
         FILEPATH,
-        BUFFER
+        BUFFER,
+        MMAP
+    }
+
+    public enum Option {
+        /**
+         * Repeated object keys share the same String instance, through a bounded JSONKeyCache.
+         * It saves memory and makes lookups faster on documents made of many objects with the same keys.
+         */
+        INTERN_KEYS,
+        /**
+         * Nested objects and arrays are only parsed the first time they are accessed, see {@link JSONParser#jsonParseLazy(JSONSource)}.
+         * Best when just a few paths of a big document are read. The document is kept in memory, or mapped, as long as any value of it is reachable.<br>
+         * A FILEPATH is memory mapped, as with MMAP. Files bigger than one mapping, see {@link JSONSourceMapped#DEFAULT_CHUNK_SIZE},
+         * hold their file descriptor until the values are no longer reachable and the channel is garbage collected.
+         * It has no effect when loading from a stream.
+         */
+        LAZY,
+        /**
+         * A top level array has its elements parsed in parallel on the common ForkJoinPool, see {@link JSONParser#jsonParseParallel(JSONSource, ForkJoinPool)}.
+         * A FILEPATH is memory mapped, as with MMAP. It has no effect when loading from a stream, or together with LAZY.
+         */
+        PARALLEL,
+        /**
+         * Records read by {@link JSON#lines(String, Option...)} are delivered a batch at a time as soon as the batch is parsed,
+         * instead of in the order of the lines.
+         */
+        UNORDERED,
+        /**
+         * The document is kept off-heap in a single JSONTape, and read through views made as it is accessed, see {@link JSONTape}.
+         * Best for big documents kept for a long time, as they add next to nothing to garbage collection. The views are read only.
+         * It takes precedence over LAZY and PARALLEL.
+         */
+        OFF_HEAP
     }
 
 }
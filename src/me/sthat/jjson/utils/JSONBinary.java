@@ -0,0 +1,532 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.exceptions.JSONBadFormat;
+import me.sthat.jjson.types.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONBinary saves a tree of JSONIElement in a compact binary form, and loads it back much faster than parsing its text,
+ * as nothing has to be tokenized, unescaped or converted from decimal.
+ * <br>
+ * The document starts with a 4 bytes header: the magic "JB", the version of the format and its flags.
+ * Then each value is a one byte tag followed by its content:<br>
+ * - integers as zigzag varints, doubles as their 8 raw IEEE 754 bytes.<br>
+ * - strings as their UTF-8 length, as a varint, and bytes.<br>
+ * - objects and arrays as their count, as a varint, followed by their members.<br>
+ * - arrays held in a primitive array as their count followed by the bare numbers, so they load back into one.<br>
+ * <br>
+ * With the string table, every short string is numbered the first time it is written,
+ * and later occurrences, keys included, are written as that number. Loading them then yields the same instance.
+ * <br>
+ * Reading builds the same tree parsing the text would: objects share their shapes, homogeneous numbers are kept in primitive arrays.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public final class JSONBinary {
+
+    public static final int VERSION = 1;
+
+    /* Set in the header when the string table is used */
+    public static final int STRING_TABLE = 1;
+
+    private static final byte NULL = 0, TRUE = 1, FALSE = 2, INTEGER = 3, DOUBLE = 4, STRING = 5, ARRAY = 6, OBJECT = 7, LONGS = 8, DOUBLES = 9;
+
+    /* Only strings up to that many UTF-8 bytes go in the table, and only that many of them */
+    private static final int MAX_SHARED_LENGTH = 128;
+    private static final int MAX_SHARED = 1 << 20;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /* The most a count or a length read from the input is trusted with up front, beyond that arrays grow as elements are read */
+    private static final int MAX_PRESIZE = 1 << 12;
+
+    private JSONBinary() {
+    }
+
+    /**
+     * Writes @element to @stream, with the string table.
+     * The stream is flushed but left open.
+     */
+    public static void write(JSONIElement element, OutputStream stream) throws IOException {
+        write(element, stream, true);
+    }
+
+    /**
+     * Writes @element to @stream, with the string table if @stringTable is set.
+     * The stream is flushed but left open.
+     */
+    public static void write(JSONIElement element, OutputStream stream, boolean stringTable) throws IOException {
+        Writer writer = new Writer(stream, stringTable);
+        writer.header();
+        writer.write(element);
+        writer.flush();
+    }
+
+    /**
+     * Reads the document at the current position of @stream.
+     * The stream is read ahead through a buffer, so it should hold nothing else after the document. It is left open.
+     *
+     * @throws JSONBadFormat
+     *      If the bytes are not a document of this format, or it is truncated
+     */
+    public static JSONIElement read(InputStream stream) throws IOException {
+        Reader reader = new Reader(stream);
+        reader.header();
+        return reader.read();
+    }
+
+    /**
+     * @return
+     *      @element encoded with the string table
+     */
+    public static byte[] toBytes(JSONIElement element) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try {
+            write(element, stream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return stream.toByteArray();
+    }
+
+    public static JSONIElement fromBytes(byte[] bytes) {
+        try {
+            return read(new ByteArrayInputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Writer {
+
+        private final OutputStream stream;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int count = 0;
+
+        private final Map<String, Integer> strings;
+        private byte[] scratch = new byte[64];
+
+        private Writer(OutputStream stream, boolean stringTable) {
+            this.stream = stream;
+            this.strings = stringTable ? new HashMap<>() : null;
+        }
+
+        private void header() throws IOException {
+            ensure(4);
+            buffer[count++] = 'J';
+            buffer[count++] = 'B';
+            buffer[count++] = VERSION;
+            buffer[count++] = (byte) (strings != null ? STRING_TABLE : 0);
+        }
+
+        private void write(JSONIElement element) throws IOException {
+            switch (element.getElementType()) {
+                case OBJECT: {
+                    Map<String, JSONIElement> map = ((JSONObject) element).getValue();
+                    tag(OBJECT);
+                    writeVarint(map.size());
+                    for (Map.Entry<String, JSONIElement> entry : map.entrySet()) {
+                        writeString(entry.getKey());
+                        write(entry.getValue());
+                    }
+                    break;
+                }
+                case ARRAY: {
+                    writeArray((JSONArray) element);
+                    break;
+                }
+                case STRING: {
+                    tag(STRING);
+                    writeString(element.asString());
+                    break;
+                }
+                case INTEGER: {
+                    tag(INTEGER);
+                    writeLong(element.asLong());
+                    break;
+                }
+                case DOUBLE: {
+                    tag(DOUBLE);
+                    writeDouble(element.asDouble());
+                    break;
+                }
+                case BOOLEAN: {
+                    tag(element.asBoolean() ? TRUE : FALSE);
+                    break;
+                }
+                case NULL: {
+                    tag(NULL);
+                    break;
+                }
+            }
+        }
+
+        private void writeArray(JSONArray array) throws IOException {
+            JSONType primitive = array.getPrimitiveType();
+            int size = (int) array.size();
+            if (primitive == JSONType.INTEGER) {
+                tag(LONGS);
+                writeVarint(size);
+                for (int i = 0; i < size; ++i) {
+                    writeLong(array.getLong(i));
+                }
+            } else if (primitive == JSONType.DOUBLE) {
+                tag(DOUBLES);
+                writeVarint(size);
+                for (int i = 0; i < size; ++i) {
+                    writeDouble(array.getDouble(i));
+                }
+            } else {
+                tag(ARRAY);
+                writeVarint(size);
+                for (JSONIElement element : array.asList()) {
+                    write(element);
+                }
+            }
+        }
+
+        /**
+         * Writes (length << 1) and the bytes of @value, or (index << 1 | 1) if it is already in the table
+         */
+        private void writeString(String value) throws IOException {
+            if (strings != null) {
+                Integer index = strings.get(value);
+                if (index != null) {
+                    writeVarint(((long) index << 1) | 1);
+                    return;
+                }
+            }
+
+            int length = value.length();
+            if (scratch.length < length * 3) {
+                scratch = new byte[Math.max(length * 3, scratch.length * 2)];
+            }
+            int size = JSONByteWriter.encode(value, scratch);
+            writeVarint((long) size << 1);
+            if (size <= buffer.length) {
+                ensure(size);
+                System.arraycopy(scratch, 0, buffer, count, size);
+                count += size;
+            } else {
+                drain();
+                stream.write(scratch, 0, size);
+            }
+
+            if (strings != null && size <= MAX_SHARED_LENGTH && strings.size() < MAX_SHARED) {
+                strings.put(value, strings.size());
+            }
+        }
+
+        private void tag(byte tag) throws IOException {
+            ensure(1);
+            buffer[count++] = tag;
+        }
+
+        private void writeLong(long value) throws IOException {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        private void writeVarint(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[count++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[count++] = (byte) value;
+        }
+
+        private void writeDouble(double value) throws IOException {
+            ensure(8);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[count++] = (byte) (bits >>> shift);
+            }
+        }
+
+        private void ensure(int size) throws IOException {
+            if (buffer.length - count < size) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            stream.write(buffer, 0, count);
+            count = 0;
+        }
+
+        private void flush() throws IOException {
+            drain();
+            stream.flush();
+        }
+    }
+
+    private static final class Reader {
+
+        private final InputStream stream;
+        private byte[] buffer = new byte[BUFFER_SIZE];
+        private int offset = 0, limit = 0;
+
+        private JSONShape shapes = JSONShape.root();
+        private String[] strings;
+        private int shared = 0;
+
+        private Reader(InputStream stream) {
+            this.stream = stream;
+        }
+
+        private void header() throws IOException {
+            require(4);
+            if (buffer[0] != 'J' || buffer[1] != 'B') {
+                throw new JSONBadFormat("Not a binary JSON document");
+            }
+            if (buffer[2] != VERSION) {
+                throw new JSONBadFormat("Unsupported binary JSON version " + buffer[2]);
+            }
+            if ((buffer[3] & STRING_TABLE) != 0) {
+                strings = new String[64];
+            }
+            offset = 4;
+        }
+
+        private JSONIElement read() throws IOException {
+            require(1);
+            byte tag = buffer[offset++];
+            switch (tag) {
+                case OBJECT: {
+                    int size = readCount();
+                    if (shapes.isFull()) {
+                        shapes = JSONShape.root();
+                    }
+                    JSONObject object = new JSONObject(shapes);
+                    for (int i = 0; i < size; ++i) {
+                        String key = readString();
+                        object.append(key, read());
+                    }
+                    return object;
+                }
+                case ARRAY: {
+                    int size = readCount();
+                    List<JSONIElement> list = new ArrayList<>(Math.min(size, MAX_PRESIZE));
+                    for (int i = 0; i < size; ++i) {
+                        list.add(read());
+                    }
+                    return new JSONArray(list);
+                }
+                case LONGS: {
+                    int size = readCount();
+                    long[] values = new long[Math.min(size, MAX_PRESIZE)];
+                    for (int i = 0; i < size; ++i) {
+                        if (i == values.length) {
+                            values = Arrays.copyOf(values, grow(i, size));
+                        }
+                        values[i] = readLong();
+                    }
+                    return JSONArray.ofLongs(values);
+                }
+                case DOUBLES: {
+                    int size = readCount();
+                    double[] values = new double[Math.min(size, MAX_PRESIZE)];
+                    for (int i = 0; i < size; ++i) {
+                        if (i == values.length) {
+                            values = Arrays.copyOf(values, grow(i, size));
+                        }
+                        values[i] = readDouble();
+                    }
+                    return JSONArray.ofDoubles(values);
+                }
+                case STRING: {
+                    return new JSONString(readString());
+                }
+                case INTEGER: {
+                    return JSONInteger.valueOf(readLong());
+                }
+                case DOUBLE: {
+                    return new JSONDouble(readDouble());
+                }
+                case TRUE: {
+                    return JSONBoolean.TRUE;
+                }
+                case FALSE: {
+                    return JSONBoolean.FALSE;
+                }
+                case NULL: {
+                    return JSONNull.NULL;
+                }
+                default: {
+                    throw new JSONBadFormat("Unknown binary JSON tag " + tag);
+                }
+            }
+        }
+
+        private String readString() throws IOException {
+            long header = readVarint();
+            if ((header & 1) != 0) {
+                long index = header >>> 1;
+                if (strings == null || index >= shared) {
+                    throw new JSONBadFormat("Reference to unknown string " + index);
+                }
+                return strings[(int) index];
+            }
+
+            long size = header >>> 1;
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new JSONBadFormat("String too long");
+            }
+            String value;
+            if (size <= buffer.length) {
+                require((int) size);
+                value = new String(buffer, offset, (int) size, StandardCharsets.UTF_8);
+                offset += (int) size;
+            } else {
+                value = new String(readFully((int) size), StandardCharsets.UTF_8);
+            }
+
+            if (strings != null && size <= MAX_SHARED_LENGTH && shared < MAX_SHARED) {
+                if (shared == strings.length) {
+                    strings = Arrays.copyOf(strings, shared * 2);
+                }
+                strings[shared++] = value;
+            }
+            return value;
+        }
+
+        private int readCount() throws IOException {
+            long count = readVarint();
+            if (count > Integer.MAX_VALUE - 8) {
+                throw new JSONBadFormat("Container too large");
+            }
+            return (int) count;
+        }
+
+        private long readLong() throws IOException {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readVarint() throws IOException {
+            if (limit - offset < 10) {
+                /* Near the end of the buffer, or of the document */
+                fill(10);
+            }
+
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (offset >= limit) {
+                    throw new JSONBadFormat("Unexpected end of the binary document");
+                }
+                byte b = buffer[offset++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new JSONBadFormat("Malformed varint");
+        }
+
+        private double readDouble() throws IOException {
+            require(8);
+            long bits = 0;
+            for (int i = 0; i < 8; ++i) {
+                bits = (bits << 8) | (buffer[offset++] & 0xFF);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        private void require(int size) throws IOException {
+            if (!fill(size)) {
+                throw new JSONBadFormat("Unexpected end of the binary document");
+            }
+        }
+
+        /**
+         * Reads until @size bytes are available from the offset, or the stream ends
+         *
+         * @return
+         *      true if they are
+         */
+        private boolean fill(int size) throws IOException {
+            if (limit - offset >= size) {
+                return true;
+            }
+            System.arraycopy(buffer, offset, buffer, 0, limit - offset);
+            limit -= offset;
+            offset = 0;
+            while (limit < size) {
+                int read = stream.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    return false;
+                }
+                limit += read;
+            }
+            return true;
+        }
+
+        /**
+         * Reads @size bytes, larger than the buffer, into an array of their own.
+         * The array grows as the bytes arrive, so a corrupt length fails on the end of the stream rather than on allocating it.
+         */
+        private byte[] readFully(int size) throws IOException {
+            int copied = limit - offset;
+            byte[] bytes = Arrays.copyOfRange(buffer, offset, offset + grow(copied, size));
+            offset = limit;
+            while (copied < size) {
+                if (copied == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, grow(copied, size));
+                }
+                int read = stream.read(bytes, copied, bytes.length - copied);
+                if (read < 0) {
+                    throw new JSONBadFormat("Unexpected end of the binary document");
+                }
+                copied += read;
+            }
+            return bytes;
+        }
+
+        /**
+         * @return
+         *      The next capacity of an array holding @length of the @size elements announced, doubling up to @size
+         */
+        private static int grow(int length, int size) {
+            return (int) Math.min(size, Math.max((long) length * 2, MAX_PRESIZE));
+        }
+    }
+
+}
@@ -0,0 +1,517 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.types.*;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONByteWriter serializes elements straight to UTF-8 bytes, with the same layout as {@link JSONWriter}.
+ * Strings are encoded char by char into a reusable byte buffer, escapes come from a lookup table,
+ * and numbers are written digit by digit without building a String first.
+ * <br>
+ * The buffer is either handed to an OutputStream or a channel when full, or kept and grown in memory
+ * to be read back with {@link #toByteArray()}, then {@link #reset()} for the next document.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONByteWriter implements Flushable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 13;
+
+    /* What each ASCII char is written as inside a string, null if it needs no escaping */
+    private static final byte[][] ESCAPES = new byte[128][];
+
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+            1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17
+    };
+
+    /* Above this a scaled double is no longer an exact integer */
+    private static final double MAX_EXACT = 1L << 53;
+
+    static {
+        for (int c = 0; c < 0x20; ++c) {
+            ESCAPES[c] = String.format("\\u%04x", c).getBytes(StandardCharsets.US_ASCII);
+        }
+        ESCAPES['"'] = new byte[] {'\\', '"'};
+        ESCAPES['\\'] = new byte[] {'\\', '\\'};
+        ESCAPES['\n'] = new byte[] {'\\', 'n'};
+        ESCAPES['\r'] = new byte[] {'\\', 'r'};
+        ESCAPES['\t'] = new byte[] {'\\', 't'};
+        ESCAPES['\b'] = new byte[] {'\\', 'b'};
+        ESCAPES['\f'] = new byte[] {'\\', 'f'};
+    }
+
+    private OutputStream stream;
+    private WritableByteChannel channel;
+    private int indentation;
+
+    private byte[] buffer;
+    private int count = 0;
+
+    private byte[] spaces = new byte[0];
+
+    /**
+     * Writes to memory, see {@link #toByteArray()}
+     *
+     * @param indentation
+     *              The indentation to use.<br>
+     *              - Set 0 to disable.<br>
+     *              - Set -1 to print each element to a single line.
+     */
+    public JSONByteWriter(int indentation) {
+        this(null, null, indentation, DEFAULT_CAPACITY);
+    }
+
+    public JSONByteWriter(OutputStream stream, int indentation) {
+        this(stream, null, indentation, DEFAULT_CAPACITY);
+    }
+
+    public JSONByteWriter(WritableByteChannel channel, int indentation) {
+        this(null, channel, indentation, DEFAULT_CAPACITY);
+    }
+
+    private JSONByteWriter(OutputStream stream, WritableByteChannel channel, int indentation, int capacity) {
+        this.stream = stream;
+        this.channel = channel;
+        this.indentation = indentation;
+        this.buffer = new byte[capacity];
+    }
+
+    /**
+     * Writes @element as a top level value
+     */
+    public JSONByteWriter write(JSONIElement element) throws IOException {
+        write(element, 0);
+        return this;
+    }
+
+    /**
+     * Writes @element as if it were nested @level containers deep
+     */
+    public void write(JSONIElement element, int level) throws IOException {
+        switch (element.getElementType()) {
+            case OBJECT: {
+                writeObject(((JSONObject) element).getValue(), level);
+                break;
+            }
+            case ARRAY: {
+                writeArray((JSONArray) element, level);
+                break;
+            }
+            case STRING: {
+                writeString(element.asString());
+                break;
+            }
+            case INTEGER: {
+                writeLong(element.asLong());
+                break;
+            }
+            case DOUBLE: {
+                writeDouble(element.asDouble());
+                break;
+            }
+            case BOOLEAN: {
+                byte[] literal = element.asBoolean() ? TRUE : FALSE;
+                append(literal, 0, literal.length);
+                break;
+            }
+            case NULL: {
+                append(NULL, 0, NULL.length);
+                break;
+            }
+        }
+    }
+
+    private void writeObject(Map<String, JSONIElement> map, int level) throws IOException {
+        append((byte) '{');
+        if (indentation >= 0) {
+            append((byte) '\n');
+        }
+
+        int remaining = map.size();
+        for (Map.Entry<String, JSONIElement> entry : map.entrySet()) {
+            indent(level + 1);
+            writeString(entry.getKey());
+            append((byte) ':');
+            append((byte) ' ');
+            write(entry.getValue(), level + 1);
+            if (--remaining > 0) {
+                append((byte) ',');
+            }
+            if (indentation >= 0) {
+                append((byte) '\n');
+            }
+        }
+
+        indent(level);
+        append((byte) '}');
+    }
+
+    private void writeArray(JSONArray array, int level) throws IOException {
+        append((byte) '[');
+        if (indentation >= 0) {
+            append((byte) '\n');
+        }
+
+        /* Numbers held in a primitive array are written without being boxed */
+        JSONType primitive = array.getPrimitiveType();
+        int size = (int) array.size();
+        for (int i = 0; i < size; ++i) {
+            indent(level + 1);
+            if (primitive == JSONType.INTEGER) {
+                writeLong(array.getLong(i));
+            } else if (primitive == JSONType.DOUBLE) {
+                writeDouble(array.getDouble(i));
+            } else {
+                write(array.get(i), level + 1);
+            }
+            if (i + 1 < size) {
+                append((byte) ',');
+            }
+            if (indentation >= 0) {
+                append((byte) '\n');
+            }
+        }
+
+        indent(level);
+        append((byte) ']');
+    }
+
+    /**
+     * Writes @value quoted and UTF-8 encoded.
+     * Chars that need no escaping are copied in a tight loop, the others are looked up in the escape table.
+     */
+    public void writeString(String value) throws IOException {
+        append((byte) '"');
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            /* Room for the longest thing a single char can turn into */
+            ensure(6);
+
+            byte[] buffer = this.buffer;
+            int count = this.count;
+            int end = Math.min(length, i + buffer.length - count - 5);
+            char c = 0;
+            while (i < end && (c = value.charAt(i)) < 128 && ESCAPES[c] == null) {
+                buffer[count++] = (byte) c;
+                ++i;
+            }
+            this.count = count;
+            if (i == end) {
+                continue;
+            }
+
+            if (c < 128) {
+                byte[] escape = ESCAPES[c];
+                System.arraycopy(escape, 0, buffer, count, escape.length);
+                this.count += escape.length;
+                ++i;
+            } else if (c < 0x800) {
+                buffer[count] = (byte) (0xC0 | (c >> 6));
+                buffer[count + 1] = (byte) (0x80 | (c & 0x3F));
+                this.count += 2;
+                ++i;
+            } else if (!Character.isSurrogate(c)) {
+                buffer[count] = (byte) (0xE0 | (c >> 12));
+                buffer[count + 1] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count + 2] = (byte) (0x80 | (c & 0x3F));
+                this.count += 3;
+                ++i;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(i + 1));
+                buffer[count] = (byte) (0xF0 | (cp >> 18));
+                buffer[count + 1] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buffer[count + 2] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buffer[count + 3] = (byte) (0x80 | (cp & 0x3F));
+                this.count += 4;
+                i += 2;
+            } else {
+                /* A lone surrogate can't be encoded, the way String#getBytes deals with it */
+                buffer[count] = '?';
+                this.count += 1;
+                ++i;
+            }
+        }
+        append((byte) '"');
+    }
+
+    /**
+     * Writes the digits of @value from the last one backwards, straight into the buffer
+     */
+    public void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+
+        ensure(20);
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+
+        int end = count + digits(value);
+        for (int i = end - 1; i >= count; --i) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count = end;
+    }
+
+    /**
+     * Writes @value the way Double#toString does.
+     * Values in plain notation range go through the fewest fraction digits that read back exactly,
+     * anything else falls back to Double#toString.
+     */
+    public void writeDouble(double value) throws IOException {
+        double abs = Math.abs(value);
+        if (abs >= 1e-3 && abs < 1e7) {
+            for (int scale = 0; scale < POWERS_OF_TEN.length && abs * POWERS_OF_TEN[scale] < MAX_EXACT; ++scale) {
+                long scaled = Math.round(abs * POWERS_OF_TEN[scale]);
+                if (scaled / POWERS_OF_TEN[scale] != abs) {
+                    continue;
+                }
+
+                long power = (long) POWERS_OF_TEN[scale];
+                long integer = scaled / power, fraction = scaled % power;
+                ensure(40);
+                if (value < 0) {
+                    buffer[count++] = '-';
+                }
+                writeLong(integer);
+                buffer[count++] = '.';
+                if (scale == 0) {
+                    buffer[count++] = '0';
+                    return;
+                }
+                for (int zeroes = scale - digits(fraction); zeroes > 0; --zeroes) {
+                    buffer[count++] = '0';
+                }
+                writeLong(fraction);
+                return;
+            }
+        }
+        writeAscii(Double.toString(value));
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            ++digits;
+        }
+        return digits;
+    }
+
+    private void writeAscii(String string) throws IOException {
+        int length = string.length();
+        ensure(length);
+        for (int i = 0; i < length; ++i) {
+            buffer[count++] = (byte) string.charAt(i);
+        }
+    }
+
+    private void indent(int level) throws IOException {
+        int length = indentation * level;
+        if (length <= 0) {
+            return;
+        }
+        if (spaces.length < length) {
+            spaces = new byte[Math.max(length, spaces.length * 2)];
+            Arrays.fill(spaces, (byte) ' ');
+        }
+        append(spaces, 0, length);
+    }
+
+    private void append(byte b) throws IOException {
+        if (count == buffer.length) {
+            ensure(1);
+        }
+        buffer[count++] = b;
+    }
+
+    private void append(byte[] bytes, int from, int to) throws IOException {
+        while (from < to) {
+            if (count == buffer.length) {
+                ensure(1);
+            }
+            int chunk = Math.min(to - from, buffer.length - count);
+            System.arraycopy(bytes, from, buffer, count, chunk);
+            count += chunk;
+            from += chunk;
+        }
+    }
+
+    /**
+     * Makes room for @size more bytes, by draining the buffer to the sink or by growing it
+     */
+    private void ensure(int size) throws IOException {
+        if (count + size <= buffer.length) {
+            return;
+        }
+        drain();
+        if (count + size > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(count + size, buffer.length * 2));
+        }
+    }
+
+    private void drain() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (stream != null) {
+            stream.write(buffer, 0, count);
+        } else if (channel != null) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, count);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } else {
+            return;
+        }
+        count = 0;
+    }
+
+    /**
+     * Hands everything written so far to the stream or the channel, flushing the stream too.
+     * Does nothing when writing to memory.
+     */
+    public void flush() throws IOException {
+        drain();
+        if (stream != null) {
+            stream.flush();
+        }
+    }
+
+    /**
+     * @return
+     *      How many bytes are held in the buffer
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return
+     *      A copy of the bytes held in the buffer
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * @return
+     *      The bytes held in the buffer, without copying them. The view is only valid until the next write.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buffer, 0, count);
+    }
+
+    /**
+     * Drops the bytes held in the buffer, keeping the buffer itself for the next document
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * Switches to writing to memory with @indentation, see {@link #reset()}
+     */
+    public JSONByteWriter reset(int indentation) {
+        return reset(null, indentation);
+    }
+
+    /**
+     * Points the writer at another stream, or at memory if @stream is null, keeping its buffers.
+     * Anything not flushed yet is dropped.
+     */
+    public JSONByteWriter reset(OutputStream stream, int indentation) {
+        this.stream = stream;
+        this.channel = null;
+        this.indentation = indentation;
+        this.count = 0;
+        return this;
+    }
+
+    /**
+     * @return
+     *      How many bytes the buffer can hold before it is drained or grown
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Encodes @value to UTF-8 at the start of @into, which must hold at least 3 bytes per char.
+     * Unpaired surrogates are written as '?'.
+     *
+     * @return
+     *      How many bytes were written
+     */
+    static int encode(CharSequence value, byte[] into) {
+        int length = value.length();
+        int size = 0;
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                into[size++] = (byte) c;
+            } else if (c < 0x800) {
+                into[size++] = (byte) (0xC0 | (c >> 6));
+                into[size++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                into[size++] = (byte) (0xF0 | (cp >> 18));
+                into[size++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                into[size++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                into[size++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                into[size++] = '?';
+            } else {
+                into[size++] = (byte) (0xE0 | (c >> 12));
+                into[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                into[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return size;
+    }
+
+}
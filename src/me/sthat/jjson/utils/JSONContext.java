@@ -0,0 +1,269 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.types.JSONIElement;
+import me.sthat.jjson.utils.JSON.Option;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONContext keeps a source, a key cache and the writers with their buffers from one call to the next,
+ * so parsing and printing many small documents only allocates the results.
+ * <br>
+ * A context is not thread safe. Get one either:<br>
+ * - with {@link #local()}, bound to the calling thread, best for long lived threads such as a request pool.<br>
+ * - with {@link #acquire()}, from a shared pool it goes back to when closed, best when threads are short lived or very many.
+ * <br>
+ * Buffers grown past {@link #MAX_RETAINED} by a big document are dropped after the call rather than kept.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONContext implements AutoCloseable {
+
+    public static final int MAX_RETAINED = 1 << 20;
+
+    private static final int MAX_POOLED = 4 * Runtime.getRuntime().availableProcessors();
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final ThreadLocal<JSONContext> LOCAL = ThreadLocal.withInitial(JSONContext::new);
+
+    private static final Queue<JSONContext> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+
+    private final JSONSourceString string = new JSONSourceString("");
+    private final JSONSourceArray bytes = new JSONSourceArray(EMPTY);
+    private JSONKeyCache keyCache;
+
+    private StringBuilder text = new StringBuilder();
+    private final JSONWriter writer = new JSONWriter(text, -1);
+    private JSONByteWriter byteWriter = new JSONByteWriter(-1);
+
+    private boolean busy = false, pooled = false;
+
+    /**
+     * @return
+     *      The context of the calling thread
+     */
+    public static JSONContext local() {
+        return LOCAL.get();
+    }
+
+    /**
+     * @return
+     *      A context from the shared pool, or a new one if it is empty. {@link #close()} gives it back.
+     */
+    public static JSONContext acquire() {
+        JSONContext context = POOL.poll();
+        if (context == null) {
+            context = new JSONContext();
+        } else {
+            POOLED.decrementAndGet();
+        }
+        context.pooled = true;
+        return context;
+    }
+
+    /**
+     * Gives a context got from {@link #acquire()} back to the pool. It does nothing on the others.
+     */
+    public void close() {
+        if (!pooled) {
+            return;
+        }
+        pooled = false;
+        if (POOLED.incrementAndGet() <= MAX_POOLED) {
+            POOL.offer(this);
+        } else {
+            POOLED.decrementAndGet();
+        }
+    }
+
+    /**
+     * Parses @json as {@link JSON#load(String, JSON.Source, Option...)} does with a BUFFER.
+     * With INTERN_KEYS the key cache is kept from one document to the next.
+     */
+    public JSONIElement parse(String json, Option... options) {
+        if (JSON.isSet(Option.LAZY, options)) {
+            /* Lazy values read the document again later, so they can't share a source that is going to be reset */
+            return JSON.load(json, JSON.Source.BUFFER, options);
+        }
+
+        JSONContext context = enter();
+        try {
+            JSONSourceString source = context.string.reset(json);
+            context.configure(source, options);
+            JSONIElement element = JSON.isSet(Option.PARALLEL, options)
+                    ? JSONParser.jsonParseParallel(source, ForkJoinPool.commonPool())
+                    : JSONParser.jsonParseNextItem(source);
+            JSONParser.jsonAssertEnd(source);
+            return element;
+        } finally {
+            context.string.reset("");
+            context.exit();
+        }
+    }
+
+    /**
+     * Parses UTF-8 encoded @json, see {@link #parse(String, Option...)}
+     */
+    public JSONIElement parse(byte[] json, Option... options) {
+        return parse(json, 0, json.length, options);
+    }
+
+    /**
+     * Parses UTF-8 encoded @json from @from up to @to, excluded, see {@link #parse(String, Option...)}.
+     * LAZY has no effect.
+     */
+    public JSONIElement parse(byte[] json, int from, int to, Option... options) {
+        JSONContext context = enter();
+        try {
+            JSONSourceArray source = context.bytes.reset(json, from, to);
+            context.configure(source, options);
+            JSONIElement element = JSON.isSet(Option.PARALLEL, options)
+                    ? JSONParser.jsonParseParallel(source, ForkJoinPool.commonPool())
+                    : JSONParser.jsonParseNextItem(source);
+            JSONParser.jsonAssertEnd(source);
+            return element;
+        } finally {
+            context.bytes.reset(EMPTY, 0, 0);
+            context.exit();
+        }
+    }
+
+    /**
+     * @return
+     *      @element as a String, see {@link JSON#stringify(JSONIElement, String, int)}
+     */
+    public String stringify(JSONIElement element, int indentation) {
+        JSONContext context = enter();
+        try {
+            context.text.setLength(0);
+            context.writer.reset(context.text, indentation).write(element).flush();
+            return context.text.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            context.text.setLength(0);
+            context.exit();
+        }
+    }
+
+    /**
+     * Prints @element to @out, which is flushed if it can be
+     */
+    public void stringify(JSONIElement element, Appendable out, int indentation) throws IOException {
+        JSONContext context = enter();
+        try {
+            context.writer.reset(out, indentation).write(element).flush();
+        } finally {
+            context.writer.reset(context.text, -1);
+            context.exit();
+        }
+    }
+
+    /**
+     * Prints @element to @stream encoded as UTF-8. The stream is flushed but not closed.
+     */
+    public void stringify(JSONIElement element, OutputStream stream, int indentation) throws IOException {
+        JSONContext context = enter();
+        try {
+            context.byteWriter.reset(stream, indentation).write(element).flush();
+        } finally {
+            context.byteWriter.reset(-1);
+            context.exit();
+        }
+    }
+
+    /**
+     * Prints @element to @stream encoded as UTF-8, see {@link #stringify(JSONIElement, OutputStream, int)}.
+     * A PrintStream is also an Appendable, this overload settles which one is meant.
+     */
+    public void stringify(JSONIElement element, PrintStream stream, int indentation) throws IOException {
+        stringify(element, (OutputStream) stream, indentation);
+    }
+
+    /**
+     * @return
+     *      @element encoded as UTF-8
+     */
+    public byte[] stringifyUTF8(JSONIElement element, int indentation) {
+        JSONContext context = enter();
+        try {
+            return context.byteWriter.reset(indentation).write(element).toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            context.byteWriter.reset();
+            context.exit();
+        }
+    }
+
+    private void configure(JSONSource source, Option... options) {
+        if (JSON.isSet(Option.INTERN_KEYS, options)) {
+            if (keyCache == null) {
+                keyCache = new JSONKeyCache();
+            }
+            source.setKeyCache(keyCache);
+        } else {
+            source.setKeyCache(null);
+        }
+    }
+
+    /**
+     * @return
+     *      This context, or a new one if it is already in use further up the stack,
+     *      as when an Appendable being printed to prints something else itself
+     */
+    private JSONContext enter() {
+        if (busy) {
+            return new JSONContext();
+        }
+        busy = true;
+        return this;
+    }
+
+    private void exit() {
+        busy = false;
+        if (text.capacity() > MAX_RETAINED) {
+            text = new StringBuilder();
+            writer.reset(text, -1);
+        }
+        if (byteWriter.capacity() > MAX_RETAINED) {
+            byteWriter = new JSONByteWriter(-1);
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.types.JSONIElement;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONDocuments reads back to back JSON values out of one source, such as {..}{..}[..] or values separated by whitespace.
+ * Every document is read through the same source, so its buffer and key cache are reused from one document to the next.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONDocuments implements Iterator<JSONIElement>, Closeable {
+
+    private final JSONSource source;
+
+    public JSONDocuments(JSONSource source) {
+        this.source = source;
+    }
+
+    /**
+     * @throws UncheckedIOException
+     *              If the source couldn't be read
+     */
+    public boolean hasNext() {
+        source.skipWhitespace();
+        return !source.end();
+    }
+
+    public JSONIElement next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return JSONParser.jsonParseNextItem(source);
+    }
+
+    /**
+     * @return
+     *              A sequential stream over the remaining documents, closing it closes this
+     */
+    public Stream<JSONIElement> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Closes the source, if it can be
+     */
+    public void close() throws IOException {
+        if (source instanceof Closeable) {
+            ((Closeable) source).close();
+        }
+    }
+
+}
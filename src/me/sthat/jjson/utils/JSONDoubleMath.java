@@ -0,0 +1,160 @@
+package me.sthat.jjson.utils;
+
+import java.math.BigInteger;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONDoubleMath turns a decimal mantissa and exponent into the closest double, without going through a String.
+ * Small values take the exact Clinger fast path, everything else goes through the Eisel-Lemire algorithm.
+ * The rare inputs neither can decide are reported with NaN, so the caller can fall back to Double.parseDouble.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+final class JSONDoubleMath {
+
+    private static final int MIN_POWER = -342, MAX_POWER = 308;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /* 128-bit truncated approximations of 5^q, normalized so that the top bit is set */
+    private static final long[] POWERS_OF_FIVE_HIGH = new long[MAX_POWER - MIN_POWER + 1];
+    private static final long[] POWERS_OF_FIVE_LOW = new long[MAX_POWER - MIN_POWER + 1];
+
+    static {
+        BigInteger two127 = BigInteger.ONE.shiftLeft(127), two128 = BigInteger.ONE.shiftLeft(128);
+        for (int q = MIN_POWER; q <= MAX_POWER; ++q) {
+            BigInteger power;
+            if (q >= 0) {
+                power = BigInteger.valueOf(5).pow(q);
+                while (power.compareTo(two127) < 0) {
+                    power = power.shiftLeft(1);
+                }
+                while (power.compareTo(two128) >= 0) {
+                    power = power.shiftRight(1);
+                }
+            } else {
+                BigInteger inverse = BigInteger.valueOf(5).pow(-q);
+                int z = inverse.bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                power = BigInteger.ONE.shiftLeft(b).divide(inverse).add(BigInteger.ONE);
+                while (power.compareTo(two128) >= 0) {
+                    power = power.shiftRight(1);
+                }
+            }
+            POWERS_OF_FIVE_HIGH[q - MIN_POWER] = power.shiftRight(64).longValue();
+            POWERS_OF_FIVE_LOW[q - MIN_POWER] = power.longValue();
+        }
+    }
+
+    private JSONDoubleMath() {}
+
+    /**
+     * @param negative
+     *      The sign of the number
+     * @param digits
+     *      The decimal mantissa, as an unsigned value
+     * @param power
+     *      The power of ten the mantissa is multiplied by
+     * @return
+     *      The closest double, or NaN if it couldn't be decided exactly
+     */
+    static double toDouble(boolean negative, long digits, int power) {
+        if (power >= -22 && power <= 22 && Long.compareUnsigned(digits, 1L << 53) <= 0) {
+            double value = (double) digits;
+            value = power < 0 ? value / POWERS_OF_TEN[-power] : value * POWERS_OF_TEN[power];
+            return negative ? -value : value;
+        }
+        if (digits == 0 || power < MIN_POWER) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (power > MAX_POWER) {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+
+        long factorHigh = POWERS_OF_FIVE_HIGH[power - MIN_POWER];
+        long exponent = (((152170L + 65536L) * power) >> 16) + 1023 + 64;
+        int lz = Long.numberOfLeadingZeros(digits);
+        long shifted = digits << lz;
+
+        long upper = multiplyHigh(shifted, factorHigh);
+        long lower = shifted * factorHigh;
+        if ((upper & 0x1FF) == 0x1FF && Long.compareUnsigned(lower + shifted, lower) < 0) {
+            /* Not enough precision, brings in the low half of the power too */
+            long factorLow = POWERS_OF_FIVE_LOW[power - MIN_POWER];
+            long productLow = shifted * factorLow;
+            long productMiddle = lower + multiplyHigh(shifted, factorLow);
+            if (Long.compareUnsigned(productMiddle, lower) < 0) {
+                ++upper;
+            }
+            if (productMiddle + 1 == 0 && (upper & 0x1FF) == 0x1FF && Long.compareUnsigned(productLow + shifted, productLow) < 0) {
+                return Double.NaN;
+            }
+        }
+
+        long upperBit = upper >>> 63;
+        long mantissa = upper >>> (upperBit + 9);
+        lz += (int) (1 ^ upperBit);
+
+        /* Too close to a halfway point to round safely */
+        if ((upper & 0x1FF) == 0x1FF || ((upper & 0x1FF) == 0 && (mantissa & 3) == 1)) {
+            return Double.NaN;
+        }
+
+        mantissa = (mantissa + 1) >>> 1;
+        if (mantissa >= (1L << 53)) {
+            mantissa = 1L << 52;
+            --lz;
+        }
+        mantissa &= ~(1L << 52);
+
+        long realExponent = exponent - lz;
+        if (realExponent < 1 || realExponent > 2046) {
+            /* Subnormals and overflows are left to Double.parseDouble */
+            return Double.NaN;
+        }
+
+        long bits = mantissa | realExponent << 52 | (negative ? 1L << 63 : 0);
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * High half of the unsigned 128-bit product of @x and @y
+     */
+    private static long multiplyHigh(long x, long y) {
+        long x0 = x & 0xFFFFFFFFL, x1 = x >>> 32;
+        long y0 = y & 0xFFFFFFFFL, y1 = y >>> 32;
+        long p11 = x1 * y1, p01 = x0 * y1, p10 = x1 * y0, p00 = x0 * y0;
+
+        long middle = p10 + (p00 >>> 32) + (p01 & 0xFFFFFFFFL);
+        return p11 + (middle >>> 32) + (p01 >>> 32);
+    }
+
+}
@@ -0,0 +1,63 @@
+package me.sthat.jjson.utils;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONHandler receives the content of a document as JSONParser scans it, one event at a time.
+ * No JSONIElement is built, so the values can go straight into whatever structure the caller needs.
+ * <br>
+ * Every method does nothing by default, override only the ones you are interested in.
+ * @see JSONParser#jsonParseNextItem(JSONSource, JSONHandler)
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public interface JSONHandler {
+
+    default void startObject() {}
+
+    /**
+     * Called for each key of an object, right before its value
+     */
+    default void key(String key) {}
+
+    default void endObject() {}
+
+    default void startArray() {}
+
+    default void endArray() {}
+
+    default void value(long value) {}
+
+    default void value(double value) {}
+
+    default void value(boolean value) {}
+
+    default void value(CharSequence value) {}
+
+    default void valueNull() {}
+
+}
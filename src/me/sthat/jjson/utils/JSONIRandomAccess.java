@@ -0,0 +1,50 @@
+package me.sthat.jjson.utils;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONIRandomAccess is implemented by the sources that can be reopened at any position of their document.
+ * Lazy and parallel parsing rely on it, and fall back to reading the source in order when it is missing.
+ * @see JSONParser#jsonParseLazy(JSONSource)
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public interface JSONIRandomAccess {
+
+    /**
+     * @return
+     *      The position of the current offset in the document, as accepted by {@link #at(long)}
+     */
+    long position();
+
+    /**
+     * Opens another source over the same document, starting at @position.
+     * The new source shares the key cache and leaves this one untouched.
+     */
+    JSONSource at(long position);
+
+}
@@ -0,0 +1,131 @@
+package me.sthat.jjson.utils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONKeyCache hands out the same String instance each time the same object key is read.
+ * Keys are looked up by their hash and length straight over the source buffer,
+ * so a key already seen costs no allocation at all.
+ * <br>
+ * The cache is a fixed size table where a new key replaces whatever was in its slot, so it never grows.
+ * Keys longer than {@link #MAX_LENGTH} are not cached.
+ * It is not thread safe, use one per thread.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONKeyCache {
+
+    public static final int DEFAULT_SIZE = 1024;
+    public static final int MAX_LENGTH = 64;
+
+    private final String[] table;
+    private final int mask;
+
+    public JSONKeyCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * @param size
+     *              How many keys the cache can hold at most, rounded up to a power of two
+     */
+    public JSONKeyCache(int size) {
+        int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.table = new String[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return
+     *              The cached key equal to @buffer from @from to @to, or null if there is none
+     * @param hash
+     *              The hash of the key, computed the same way as String.hashCode()
+     */
+    public String get(String buffer, int from, int to, int hash) {
+        String cached = table[slot(hash)];
+        int length = to - from;
+        if (cached != null && cached.length() == length && buffer.regionMatches(from, cached, 0, length)) {
+            return cached;
+        }
+        return null;
+    }
+
+    /**
+     * Same as {@link #get(String, int, int, int)}, for keys made of ASCII bytes only
+     */
+    public String get(ByteBuffer buffer, int from, int to, int hash) {
+        String cached = table[slot(hash)];
+        int length = to - from;
+        if (cached == null || cached.length() != length) {
+            return null;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (cached.charAt(i) != buffer.get(from + i)) {
+                return null;
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Stores @key, replacing the key in the same slot if any
+     *
+     * @return
+     *              @key itself
+     */
+    public String put(String key, int hash) {
+        if (key.length() <= MAX_LENGTH) {
+            table[slot(hash)] = key;
+        }
+        return key;
+    }
+
+    /**
+     * @return
+     *              The cached instance equal to @key if there is one, or @key itself after caching it
+     */
+    public String intern(String key) {
+        int hash = key.hashCode();
+        String cached = table[slot(hash)];
+        if (key.equals(cached)) {
+            return cached;
+        }
+        return put(key, hash);
+    }
+
+    public void clear() {
+        Arrays.fill(table, null);
+    }
+
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+}
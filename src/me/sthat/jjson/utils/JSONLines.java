@@ -0,0 +1,268 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.exceptions.JSONUnexpectedToken;
+import me.sthat.jjson.types.JSONIElement;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONLines reads newline delimited JSON, one record per line, as an iterator.
+ * <br>
+ * The channel is read in batches of whole lines, each batch is parsed as a separate task on an executor.
+ * At most a fixed number of batches are read ahead, so memory stays bounded however long the input is.
+ * Records come out in the same order as the lines, unless the unordered mode is set,
+ * in which case each batch is delivered as soon as it is parsed.
+ * <br>
+ * Blank lines are skipped. A line holding anything but one value is an error.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONLines implements Iterator<JSONIElement>, Closeable {
+
+    public static final int DEFAULT_BATCH_SIZE = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final Executor executor;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final boolean ordered;
+    private final boolean internKeys;
+
+    /* Batches read ahead, in order. The unordered mode takes them from completion instead, pending only keeps them to cancel them */
+    private final ArrayDeque<Future<List<JSONIElement>>> pending = new ArrayDeque<>();
+    private final CompletionService<List<JSONIElement>> completion;
+    private int inFlight = 0;
+
+    /* The start of a line not yet terminated at the end of the last batch */
+    private byte[] carry = new byte[0];
+    private boolean eof = false;
+
+    private Iterator<JSONIElement> current = Collections.emptyIterator();
+
+    /**
+     * Reads @channel on the common ForkJoinPool, in order
+     */
+    public JSONLines(ReadableByteChannel channel) {
+        this(channel, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE, 2 * ForkJoinPool.getCommonPoolParallelism() + 1, true, false);
+    }
+
+    /**
+     * @param channel
+     *              The channel to read from, closed along with this
+     * @param executor
+     *              Where batches are parsed
+     * @param batchSize
+     *              How many bytes of lines make a batch, a batch grows past it only to hold a longer line
+     * @param maxInFlight
+     *              How many batches can be read ahead at most
+     * @param ordered
+     *              false to get the records of each batch as soon as it is parsed
+     * @param internKeys
+     *              true to canonicalize the object keys of each batch, see {@link JSON.Option#INTERN_KEYS}
+     */
+    public JSONLines(ReadableByteChannel channel, Executor executor, int batchSize, int maxInFlight, boolean ordered, boolean internKeys) {
+        this.channel = channel;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.ordered = ordered;
+        this.internKeys = internKeys;
+        this.completion = ordered ? null : new ExecutorCompletionService<>(executor);
+    }
+
+    /**
+     * @throws UncheckedIOException
+     *              If the channel couldn't be read
+     */
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            submit();
+            if (inFlight == 0) {
+                return false;
+            }
+            current = await().iterator();
+        }
+        return true;
+    }
+
+    public JSONIElement next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * @return
+     *              A sequential stream over the remaining records, closing it closes this
+     */
+    public Stream<JSONIElement> stream() {
+        int characteristics = Spliterator.NONNULL | (ordered ? Spliterator.ORDERED : 0);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, characteristics), false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Closes the channel, batches still being parsed are cancelled
+     */
+    public void close() throws IOException {
+        for (Future<List<JSONIElement>> batch : pending) {
+            batch.cancel(false);
+        }
+        pending.clear();
+        inFlight = 0;
+        eof = true;
+        channel.close();
+    }
+
+    /**
+     * Reads and submits batches until enough are in flight
+     */
+    private void submit() {
+        while (!eof && inFlight < maxInFlight) {
+            ByteBuffer batch = read();
+            if (batch == null) {
+                return;
+            }
+
+            Callable<List<JSONIElement>> task = () -> parse(batch.array(), batch.limit(), internKeys);
+            if (ordered) {
+                FutureTask<List<JSONIElement>> future = new FutureTask<>(task);
+                executor.execute(future);
+                pending.add(future);
+            } else {
+                pending.add(completion.submit(task));
+            }
+            ++inFlight;
+        }
+    }
+
+    private List<JSONIElement> await() {
+        try {
+            --inFlight;
+            if (ordered) {
+                return pending.poll().get();
+            }
+            Future<List<JSONIElement>> batch = completion.take();
+            pending.remove(batch);
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a batch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Reads the next batch of whole lines, or null if there is nothing left
+     */
+    private ByteBuffer read() {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(batchSize, carry.length * 2));
+        buffer.put(carry);
+
+        try {
+            while (true) {
+                int read = channel.read(buffer);
+                if (read < 0) {
+                    eof = true;
+                    carry = new byte[0];
+                    buffer.flip();
+                    return buffer.hasRemaining() ? buffer : null;
+                }
+                if (buffer.hasRemaining()) {
+                    continue;
+                }
+
+                /* The batch ends with the last full line, what comes after goes on to the next one */
+                byte[] array = buffer.array();
+                int end = array.length;
+                while (end > 0 && array[end - 1] != '\n') {
+                    --end;
+                }
+                if (end == 0) {
+                    /* Not even one line fits */
+                    buffer = ByteBuffer.allocate(array.length * 2).put(array);
+                    continue;
+                }
+
+                carry = Arrays.copyOfRange(array, end, array.length);
+                buffer.position(0).limit(end);
+                return buffer;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses each line of @bytes, up to @length
+     */
+    static List<JSONIElement> parse(byte[] bytes, int length, boolean internKeys) {
+        JSONSourceArray source = new JSONSourceArray(bytes, 0, length);
+        if (internKeys) {
+            source.setKeyCache(new JSONKeyCache());
+        }
+
+        List<JSONIElement> records = new ArrayList<>();
+        while (true) {
+            source.skipWhitespace();
+            if (source.end()) {
+                return records;
+            }
+            records.add(JSONParser.jsonParseNextItem(source));
+
+            /* Nothing but blanks can follow a record on its line */
+            char c;
+            while ((c = source.getChar()) == ' ' || c == '\t' || c == '\r') {
+                source.next();
+            }
+            if (c != '\n' && !source.end()) {
+                throw new JSONUnexpectedToken("Expected a new line after a record, found " + c + " instead.");
+            }
+        }
+    }
+
+}
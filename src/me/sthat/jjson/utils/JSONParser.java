@@ -1,8 +1,13 @@
 package me.sthat.jjson.utils;
 
+import me.sthat.jjson.exceptions.JSONBadFormat;
 import me.sthat.jjson.exceptions.JSONUnexpectedToken;
 import me.sthat.jjson.types.*;
 
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /*
  * MIT License
  *
@@ -36,12 +41,36 @@ import me.sthat.jjson.types.*;
  */
 public class JSONParser {
 
+    /**
+     * Parses @buffer, which must hold a single value.
+     * Use {@link JSONDocuments} to read values following each other.
+     *
+     * @throws JSONUnexpectedToken
+     *      If anything but whitespace follows the value
+     */
     public static JSONIElement jsonFromString(String buffer) {
-        return jsonParseNextItem(new JSONSourceString(buffer));
+        JSONSourceString source = new JSONSourceString(buffer);
+        JSONIElement element = jsonParseNextItem(source);
+        jsonAssertEnd(source);
+        return element;
     }
 
+    /**
+     * Checks that nothing but whitespace is left in @source, once the value of a whole document has been read from it
+     *
+     * @throws JSONUnexpectedToken
+     *      If anything else follows the value
+     */
+    public static void jsonAssertEnd(JSONSource source) {
+        source.skipWhitespace();
+        if (!source.end()) {
+            throw new JSONUnexpectedToken("Unexpected " + source.getChar() + " after the end of the document.");
+        }
+    }
 
-    public static JSONIElement jsonParseNextItem(JSONSourceString source) {
+
+    public static JSONIElement jsonParseNextItem(JSONSource source) {
+        source.skipWhitespace();
         switch (source.getChar()) {
             case '{': {
                 return jsonParseObject(source);
@@ -60,92 +89,287 @@ public class JSONParser {
                 return jsonParseNull(source);
             }
             default: {
-                char c;
-                source.resetVirOffset();
-                boolean dotSeen = false;
-                boolean isNegative = false;
-                boolean signSeen = false;
-
-                /*
-                 * Let Integer.parseInt and Double.parseDouble handles scientific notation and hex numbers
-                 * Just find out if this is an integer or a double
-                 */
-
-                c = source.nextCharVir();
-                if (c != '0' || source.nextCharVir() != 'x') {
-                    /*
-                     * If the number starts with '0x', exclude the prefix from being parsed
-                     * Handling 'x' in the loop below would result in an exception since it not a valid hex digit
-                     */
-                    source.resetVirOffset();
+                if (jsonReadNumber(source)) {
+                    return new JSONDouble(source.doubleValue);
                 }
+                return JSONInteger.valueOf(source.longValue);
+            }
+        }
+    }
 
-                while ((c = source.getVir()) != ',' && c != ']' && c != '}') {
-                    if (c == '.') {
-                        if (dotSeen) {
-                            throw new JSONUnexpectedToken("Double dot in a number is not allowed");
-                        }
-                        dotSeen = true;
-                    }
-                    else if (c == '-') {
-                        if (isNegative) {
-                            throw new JSONUnexpectedToken("Found double '-' while expecting a number");
-                        }
-                        isNegative = true;
-                        signSeen = true;
-                    }
-                    else if (c == '+') {
-                        if (signSeen) {
-                            throw new JSONUnexpectedToken("Found double '+' while expecting a number");
-                        }
+    /**
+     * Parses the value at the current offset one level deep.
+     * Objects and arrays nested in it are only skipped, their content is parsed the first time it is accessed,
+     * reading it again from the source at the position they were found at.
+     * A source without random access, see {@link JSONIRandomAccess}, is parsed as usual.
+     */
+    public static JSONIElement jsonParseLazy(JSONSource source) {
+        if (!(source instanceof JSONIRandomAccess)) {
+            return jsonParseNextItem(source);
+        }
 
-                        signSeen = true;
-                    }
-                    else if (!isHexDigit(c)) {
-                        throw new JSONUnexpectedToken("Character " + c + " is not a valid decimal or hex digit");
-                    }
-                    if (!source.end()) {
-                        source.nextVir();
-                    }
+        source.skipWhitespace();
+        switch (source.getChar()) {
+            case '{': {
+                return jsonParseObject(source, true);
+            }
+            case '[': {
+                return jsonParseArray(source, true);
+            }
+            default: {
+                return jsonParseNextItem(source);
+            }
+        }
+    }
+
+    /**
+     * Skips the object or array at the current offset, returning a placeholder that parses it when first accessed.
+     * Any other value is parsed right away.
+     */
+    private static JSONIElement jsonParseDeferred(JSONSource source) {
+        source.skipWhitespace();
+        char c = source.getChar();
+        if (c != '{' && c != '[') {
+            return jsonParseNextItem(source);
+        }
+
+        /* Only reached from jsonParseLazy, which checked the source */
+        JSONIRandomAccess random = (JSONIRandomAccess) source;
+        long position = random.position();
+        source.next();
+        jsonSkipContainer(source);
+        if (c == '{') {
+            return JSONObject.lazy(() -> (JSONObject) jsonParseLazy(random.at(position)));
+        }
+        return JSONArray.lazy(() -> (JSONArray) jsonParseLazy(random.at(position)));
+    }
+
+    /**
+     * Parses only the parts of the value at the current offset wanted by @projection.
+     * Object members that are not wanted are skipped by matching brackets, nothing is built for them.
+     * Array elements before the highest index wanted are kept as nulls, so indexes stay the same as in the document,
+     * and the ones after it are skipped.
+     */
+    public static JSONIElement jsonParseProjected(JSONSource source, JSONProjection projection) {
+        if (projection.isWhole()) {
+            return jsonParseNextItem(source);
+        }
+
+        source.skipWhitespace();
+        switch (source.getChar()) {
+            case '{': {
+                source.next();
+                return jsonParseProjectedObject(source, projection);
+            }
+            case '[': {
+                source.next();
+                return jsonParseProjectedArray(source, projection);
+            }
+            default: {
+                /* The path goes on, but the document doesn't */
+                return jsonParseNextItem(source);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #jsonParseProjected(JSONSource, JSONProjection)}, for an object whose opening bracket has already been consumed
+     */
+    static JSONObject jsonParseProjectedObject(JSONSource source, JSONProjection projection) {
+        JSONObject object = new JSONObject(source.getShapes());
+        source.skipWhitespace();
+        if (source.getChar() == '}') {
+            source.next();
+            return object;
+        }
+
+        char ch;
+        do {
+            source.skipWhitespace();
+            String key = jsonReadKey(source);
+            source.skipWhitespace();
+            if (!source.assertNextCharIs(':')) {
+                throw new JSONUnexpectedToken("Expected ':' after key declaration.");
+            }
+
+            JSONProjection child = projection.get(key);
+            if (child == null) {
+                jsonSkipValue(source);
+            } else {
+                object.append(key, jsonParseProjected(source, child));
+            }
+            source.skipWhitespace();
+        } while ((ch = source.nextChar()) == ',');
+
+        if (ch != '}') {
+            throw new JSONUnexpectedToken("Missing closing bracket or comma after value declaration, found " + ch + " instead.");
+        }
+        return object;
+    }
+
+    /**
+     * Same as {@link #jsonParseProjected(JSONSource, JSONProjection)}, for an array whose opening bracket has already been consumed
+     */
+    static JSONArray jsonParseProjectedArray(JSONSource source, JSONProjection projection) {
+        JSONArray array = new JSONArray();
+        source.skipWhitespace();
+        if (source.getChar() == ']') {
+            source.next();
+            return array;
+        }
+
+        int index = 0;
+        char ch;
+        do {
+            JSONProjection child = projection.get(index);
+            if (child != null) {
+                array.append(jsonParseProjected(source, child));
+            } else {
+                jsonSkipValue(source);
+                if (index < projection.getMaxIndex()) {
+                    array.append(JSONNull.NULL);
                 }
+            }
+            ++index;
+            source.skipWhitespace();
+        } while ((ch = source.nextChar()) == ',');
 
-                source.disableVirOffset();
-                return dotSeen ? jsonParseDouble(source) : jsonParseInteger(source);
+        if (ch != ']') {
+            throw new JSONUnexpectedToken("Missing closing square bracket.");
+        }
+        return array;
+    }
+
+    /**
+     * Parses a top level array splitting its elements across the threads of @pool, keeping their order.
+     * Element boundaries are found first by skipping over each element, which is much cheaper than building it.
+     * Ranges of elements are then parsed by separate tasks, each reading from its own view of the source.
+     * Any other document, or a source without random access, is parsed as usual.
+     */
+    public static JSONIElement jsonParseParallel(JSONSource source, ForkJoinPool pool) {
+        source.skipWhitespace();
+        if (source.getChar() != '[' || !(source instanceof JSONIRandomAccess)) {
+            return jsonParseNextItem(source);
+        }
+        JSONIRandomAccess random = (JSONIRandomAccess) source;
+
+        source.next();
+        source.skipWhitespace();
+        if (source.getChar() == ']') {
+            source.next();
+            return new JSONArray();
+        }
+
+        long[] positions = new long[1024];
+        int count = 0;
+        char ch;
+        do {
+            source.skipWhitespace();
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
             }
+            positions[count++] = random.position();
+            jsonSkipValue(source);
+            source.skipWhitespace();
+        } while ((ch = source.nextChar()) == ',');
+
+        if (ch != ']') {
+            throw new JSONUnexpectedToken("Missing closing square bracket.");
         }
+
+        JSONIElement[] elements = new JSONIElement[count];
+        int grain = Math.max(1, count / (pool.getParallelism() * 8));
+        pool.invoke(new ParseRange(source, positions, elements, 0, count, grain));
+        return new JSONArray(elements);
     }
 
-    public static JSONObject jsonParseObject(JSONSourceString source) {
+    /**
+     * Parses the elements from @from to @to of a top level array, halving the range down to @grain elements
+     */
+    private static class ParseRange extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final JSONSource source;
+        private final long[] positions;
+        private final JSONIElement[] elements;
+        private final int from, to, grain;
+
+        ParseRange(JSONSource source, long[] positions, JSONIElement[] elements, int from, int to, int grain) {
+            this.source = source;
+            this.positions = positions;
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        protected void compute() {
+            if (to - from > grain) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseRange(source, positions, elements, from, middle, grain),
+                        new ParseRange(source, positions, elements, middle, to, grain));
+                return;
+            }
+
+            /* Key caches are not thread safe, each range gets its own */
+            JSONSource view = ((JSONIRandomAccess) source).at(positions[from]);
+            if (source.getKeyCache() != null) {
+                view.setKeyCache(new JSONKeyCache());
+            }
+
+            for (int i = from; i < to; ++i) {
+                if (i > from) {
+                    /* The comma was already checked while looking for the boundaries */
+                    view.skipWhitespace();
+                    view.next();
+                }
+                elements[i] = jsonParseNextItem(view);
+            }
+        }
+    }
+
+    public static JSONObject jsonParseObject(JSONSource source) {
+        return jsonParseObject(source, false);
+    }
+
+    private static JSONObject jsonParseObject(JSONSource source, boolean lazy) {
         if (!source.assertNextCharIs('{')) {
             throw new JSONUnexpectedToken("JSON Object must starts with a '{'.");
         }
 
-        JSONObject object = new JSONObject();
+        JSONObject object = new JSONObject(source.getShapes());
 
         /* Looking for empty objects */
+        source.skipWhitespace();
         if (source.getChar() == '}') {
+            source.next();
             return object;
         }
 
         do {
+            source.skipWhitespace();
             if (source.getChar() != '"') {
                 throw new JSONUnexpectedToken("Expected '\"', found " + source.getChar() + " instead.");
             }
-            JSONString key = jsonParseString(source);
+            String key = jsonReadKey(source);
 
+            source.skipWhitespace();
             if (source.getChar() != ':') {
                 throw new JSONUnexpectedToken("Expected ':' after key declaration, found " + source.getChar() + " instead");
             }
 
             source.next();
-            JSONIElement element = jsonParseNextItem(source);
-            object.append(key.getValue(), element);
+            JSONIElement element = lazy ? jsonParseDeferred(source) : jsonParseNextItem(source);
+            object.append(key, element);
 
+            source.skipWhitespace();
             if (source.getChar() != ',') {
                 break;
             }
 
             source.next();
+            source.skipWhitespace();
         } while (!source.end() && source.getChar() == '"');
 
         if (source.getChar() != '}') {
@@ -157,101 +381,474 @@ public class JSONParser {
         return object;
     }
 
-    public static JSONArray jsonParseArray(JSONSourceString source) {
+    public static JSONArray jsonParseArray(JSONSource source) {
+        return jsonParseArray(source, false);
+    }
+
+    private static JSONArray jsonParseArray(JSONSource source, boolean lazy) {
         if (!source.assertNextCharIs('[')) {
-            throw new JSONUnexpectedToken("JSON Object must starts with a '{'.");
+            throw new JSONUnexpectedToken("JSON Array must starts with a '['.");
         }
 
         JSONArray array = new JSONArray();
 
+        source.skipWhitespace();
         if (source.getChar() == ']') {
             source.next();
             return array;
         }
 
-        char ch = source.getChar();
+        /* Numbers are kept unboxed for as long as they are all integers, or all doubles */
+        long[] longs = null;
+        double[] doubles = null;
+        int count = 0;
+        boolean primitive = !lazy;
+
+        char ch;
         do {
-            if (ch == ',' && source.getChar() == ']') {
+            source.skipWhitespace();
+            char c = source.getChar();
+            if (c == ']') {
                 throw new JSONUnexpectedToken("Unexpected comma before ']'.");
             }
-            JSONIElement element = jsonParseNextItem(source);
-            array.append(element);
+
+            if (primitive && (c == '-' || isDigit(c))) {
+                boolean isDouble = jsonReadNumber(source);
+                if (count == 0) {
+                    if (isDouble) {
+                        doubles = new double[8];
+                    } else {
+                        longs = new long[8];
+                    }
+                }
+
+                if (isDouble && doubles != null) {
+                    if (count == doubles.length) {
+                        doubles = Arrays.copyOf(doubles, count * 2);
+                    }
+                    doubles[count++] = source.doubleValue;
+                } else if (!isDouble && longs != null) {
+                    if (count == longs.length) {
+                        longs = Arrays.copyOf(longs, count * 2);
+                    }
+                    longs[count++] = source.longValue;
+                } else {
+                    primitive = false;
+                    box(array, longs, doubles, count);
+                    array.append(isDouble ? new JSONDouble(source.doubleValue) : JSONInteger.valueOf(source.longValue));
+                }
+            } else {
+                if (primitive) {
+                    primitive = false;
+                    box(array, longs, doubles, count);
+                }
+                array.append(lazy ? jsonParseDeferred(source) : jsonParseNextItem(source));
+            }
+            source.skipWhitespace();
         } while ((ch = source.nextChar()) == ',');
 
         if (ch != ']') {
-            System.out.println("Found char " + ch);
             throw new JSONUnexpectedToken("Missing closing square bracket.");
         }
 
+        if (primitive) {
+            return longs != null ? JSONArray.ofLongs(Arrays.copyOf(longs, count)) : JSONArray.ofDoubles(Arrays.copyOf(doubles, count));
+        }
         return array;
     }
 
-    public static JSONString jsonParseString(JSONSourceString source) {
-        if (!source.assertNextCharIs('"')) {
-            throw new JSONUnexpectedToken("JSON Object must starts with a '{'.");
+    /**
+     * Appends to @array the first @count numbers read into @longs or @doubles, once the array turns out not to be all of a kind
+     */
+    private static void box(JSONArray array, long[] longs, double[] doubles, int count) {
+        for (int i = 0; i < count; ++i) {
+            array.append(longs != null ? JSONInteger.valueOf(longs[i]) : new JSONDouble(doubles[i]));
         }
+    }
 
-        StringBuilder builder = new StringBuilder();
-        char c;
-        boolean escape = false;
-        while ((c = source.nextChar()) != '"' || escape) {
-            if (c == '\\') {
-                escape = !escape;
+    /**
+     * Parses the value at the current offset reporting each part of it to @handler, instead of building it
+     */
+    public static void jsonParseNextItem(JSONSource source, JSONHandler handler) {
+        source.skipWhitespace();
+        switch (source.getChar()) {
+            case '{': {
+                jsonParseObject(source, handler);
+                break;
+            }
+            case '[': {
+                jsonParseArray(source, handler);
+                break;
+            }
+            case '"': {
+                handler.value(jsonReadString(source));
+                break;
+            }
+            case 't':
+            case 'f': {
+                handler.value(jsonReadBoolean(source));
+                break;
+            }
+            case 'n': {
+                jsonReadNull(source);
+                handler.valueNull();
+                break;
+            }
+            default: {
+                if (jsonReadNumber(source)) {
+                    handler.value(source.doubleValue);
+                } else {
+                    handler.value(source.longValue);
+                }
             }
-            builder.append(c);
         }
+    }
 
+    public static void jsonParseObject(JSONSource source, JSONHandler handler) {
+        if (!source.assertNextCharIs('{')) {
+            throw new JSONUnexpectedToken("JSON Object must starts with a '{'.");
+        }
 
-        return new JSONString(builder.toString());
-    }
+        handler.startObject();
 
-    public static JSONDouble jsonParseDouble(JSONSourceString source) {
-        StringBuilder builder = new StringBuilder();
-        char c;
-        while ((c=source.getChar()) != ',' && c != '}' && c != ']') {
-            builder.append(c);
+        /* Looking for empty objects */
+        source.skipWhitespace();
+        if (source.getChar() == '}') {
             source.next();
+            handler.endObject();
+            return;
         }
 
-        return new JSONDouble(Double.parseDouble(builder.toString()));
+        do {
+            source.skipWhitespace();
+            if (source.getChar() != '"') {
+                throw new JSONUnexpectedToken("Expected '\"', found " + source.getChar() + " instead.");
+            }
+            handler.key(jsonReadKey(source));
+
+            source.skipWhitespace();
+            if (source.getChar() != ':') {
+                throw new JSONUnexpectedToken("Expected ':' after key declaration, found " + source.getChar() + " instead");
+            }
+
+            source.next();
+            jsonParseNextItem(source, handler);
+
+            source.skipWhitespace();
+            if (source.getChar() != ',') {
+                break;
+            }
+
+            source.next();
+            source.skipWhitespace();
+        } while (!source.end() && source.getChar() == '"');
+
+        if (source.getChar() != '}') {
+            throw new JSONUnexpectedToken("Missing closing bracket or comma after value declaration, found " + source.getChar() + " instead. Missing quote?");
+        }
+
+        source.next();
+        handler.endObject();
     }
 
-    public static JSONInteger jsonParseInteger(JSONSourceString source) {
-        StringBuilder builder = new StringBuilder();
-        char c;
-        while ((c=source.getChar()) != ',' && c != '}' && c != ']') {
-            builder.append(c);
+    public static void jsonParseArray(JSONSource source, JSONHandler handler) {
+        if (!source.assertNextCharIs('[')) {
+            throw new JSONUnexpectedToken("JSON Array must starts with a '['.");
+        }
+
+        handler.startArray();
+
+        source.skipWhitespace();
+        if (source.getChar() == ']') {
             source.next();
+            handler.endArray();
+            return;
+        }
+
+        char ch;
+        do {
+            source.skipWhitespace();
+            if (source.getChar() == ']') {
+                throw new JSONUnexpectedToken("Unexpected comma before ']'.");
+            }
+            jsonParseNextItem(source, handler);
+            source.skipWhitespace();
+        } while ((ch = source.nextChar()) == ',');
+
+        if (ch != ']') {
+            throw new JSONUnexpectedToken("Missing closing square bracket.");
+        }
+
+        handler.endArray();
+    }
+
+    public static JSONString jsonParseString(JSONSource source) {
+        return new JSONString(jsonReadString(source));
+    }
+
+    public static JSONDouble jsonParseDouble(JSONSource source) {
+        return new JSONDouble(jsonReadNumber(source) ? source.doubleValue : source.longValue);
+    }
+
+    public static JSONInteger jsonParseInteger(JSONSource source) {
+        if (jsonReadNumber(source)) {
+            throw new JSONUnexpectedToken("Expected an integer, found a double instead.");
+        }
+        return JSONInteger.valueOf(source.longValue);
+    }
+
+    public static JSONBoolean jsonParseBoolean(JSONSource source) {
+        return JSONBoolean.valueOf(jsonReadBoolean(source));
+    }
+
+    public static JSONNull jsonParseNull(JSONSource source) {
+        jsonReadNull(source);
+        return JSONNull.NULL;
+    }
+
+    public static String jsonReadString(JSONSource source) {
+        if (!source.assertNextCharIs('"')) {
+            throw new JSONUnexpectedToken("JSON String must starts with a '\"'.");
+        }
+
+        return source.readString();
+    }
+
+    /**
+     * Reads the object key at the current offset, through the source key cache if there is one
+     */
+    public static String jsonReadKey(JSONSource source) {
+        if (!source.assertNextCharIs('"')) {
+            throw new JSONUnexpectedToken("JSON String must starts with a '\"'.");
         }
 
-        return new JSONInteger(Integer.parseInt(builder.toString()));
+        return source.readKey();
     }
 
-    public static JSONBoolean jsonParseBoolean(JSONSourceString source) {
-        StringBuilder builder = new StringBuilder();
-        char c;
-        while ((c=source.getChar()) != ',' && c != '}' && c != ']') {
-            builder.append(c);
+    /**
+     * Moves past the string at the current offset without building it
+     */
+    public static void jsonSkipString(JSONSource source) {
+        if (!source.assertNextCharIs('"')) {
+            throw new JSONUnexpectedToken("JSON String must starts with a '\"'.");
+        }
+
+        source.skipString();
+    }
+
+    /**
+     * Moves past the rest of an object or an array whose opening bracket has already been read.
+     * Nested values are matched by their brackets only, nothing is built.
+     */
+    public static void jsonSkipContainer(JSONSource source) {
+        int depth = 1;
+        while (depth > 0) {
+            switch (source.getChar()) {
+                case '"': {
+                    jsonSkipString(source);
+                    continue;
+                }
+                case '{':
+                case '[': {
+                    ++depth;
+                    break;
+                }
+                case '}':
+                case ']': {
+                    --depth;
+                    break;
+                }
+                case 0: {
+                    if (source.end()) {
+                        throw new JSONBadFormat("Missing closing bracket");
+                    }
+                    break;
+                }
+            }
             source.next();
         }
+    }
 
-        return new JSONBoolean(Boolean.parseBoolean(builder.toString()));
+    /**
+     * Moves past the value at the current offset without building it
+     */
+    public static void jsonSkipValue(JSONSource source) {
+        source.skipWhitespace();
+        char c = source.getChar();
+        switch (c) {
+            case '{':
+            case '[': {
+                source.next();
+                jsonSkipContainer(source);
+                break;
+            }
+            case '"': {
+                jsonSkipString(source);
+                break;
+            }
+            default: {
+                if (isValueEnd(c)) {
+                    throw new JSONUnexpectedToken("Expected a value, found " + c + " instead.");
+                }
+                do {
+                    source.next();
+                } while (!isValueEnd(source.getChar()));
+                break;
+            }
+        }
     }
 
-    public static JSONNull jsonParseNull(JSONSourceString source) {
-        StringBuilder builder = new StringBuilder();
-        char c;
-        while ((c=source.getChar()) != ',' && c != '}' && c != ']') {
-            builder.append(c);
+    /**
+     * Reads the number at the current offset in a single pass, accumulating its digits straight into a long.
+     * Integers that don't fit in a long are read as doubles.
+     *
+     * @return
+     *      true if the number is a double, left in source.doubleValue.<br>
+     *      false if it is an integer, left in source.longValue.
+     */
+    public static boolean jsonReadNumber(JSONSource source) {
+        char c = source.getChar();
+        boolean negative = c == '-';
+        if (negative || c == '+') {
+            source.next();
+            c = source.getChar();
+        }
+        if (!isDigit(c)) {
+            if (source.end()) {
+                throw new JSONBadFormat("Unexpected end of document");
+            }
+            throw new JSONUnexpectedToken("Character " + c + " is not a valid digit");
+        }
+
+        /* Up to 19 significant digits fit in the mantissa, the ones after are kept aside for the slow path */
+        long digits = 0;
+        int significant = 0, exponent = 0;
+        StringBuilder dropped = null;
+        boolean isDouble = false;
+
+        do {
+            if (significant < 19) {
+                digits = digits * 10 + (c - '0');
+                if (digits != 0) {
+                    ++significant;
+                }
+            } else {
+                dropped = drop(dropped, c);
+                ++exponent;
+            }
+            source.next();
+        } while (isDigit(c = source.getChar()));
+
+        if (c == '.') {
+            isDouble = true;
             source.next();
+            if (!isDigit(c = source.getChar())) {
+                throw new JSONUnexpectedToken("Expected a digit after '.', found " + c + " instead");
+            }
+
+            do {
+                if (significant < 19) {
+                    digits = digits * 10 + (c - '0');
+                    if (digits != 0) {
+                        ++significant;
+                    }
+                    --exponent;
+                } else {
+                    dropped = drop(dropped, c);
+                }
+                source.next();
+            } while (isDigit(c = source.getChar()));
         }
 
-        String str = builder.toString();
+        if (c == 'e' || c == 'E') {
+            isDouble = true;
+            source.next();
+            c = source.getChar();
+            boolean negativeExponent = c == '-';
+            if (negativeExponent || c == '+') {
+                source.next();
+                c = source.getChar();
+            }
+            if (!isDigit(c)) {
+                throw new JSONUnexpectedToken("Expected a digit in the exponent, found " + c + " instead");
+            }
 
-        if (!str.equals("null"))
-            throw new JSONUnexpectedToken("Invalid token \"" + str + "\".");
+            int value = 0;
+            do {
+                if (value < 100000) {
+                    value = value * 10 + (c - '0');
+                }
+                source.next();
+            } while (isDigit(c = source.getChar()));
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (!isDouble && dropped == null && (digits >= 0 || (negative && digits == Long.MIN_VALUE))) {
+            source.longValue = negative ? -digits : digits;
+            return false;
+        }
+
+        source.doubleValue = toDouble(negative, digits, exponent, dropped);
+        return true;
+    }
+
+    private static double toDouble(boolean negative, long digits, int exponent, StringBuilder dropped) {
+        if (dropped == null) {
+            double value = JSONDoubleMath.toDouble(negative, digits, exponent);
+            if (!Double.isNaN(value)) {
+                return value;
+            }
+        } else {
+            /* The digits past the 19th only matter if they could round the value up */
+            double value = JSONDoubleMath.toDouble(negative, digits, exponent);
+            if (!Double.isNaN(value) && value == JSONDoubleMath.toDouble(negative, digits + 1, exponent)) {
+                return value;
+            }
+        }
+
+        /* Rare cases the fast path can't decide exactly */
+        String text = Long.toUnsignedString(digits) + (dropped == null ? "E" + exponent : dropped + "E" + (exponent - dropped.length()));
+        double value = Double.parseDouble(text);
+        return negative ? -value : value;
+    }
+
+    private static StringBuilder drop(StringBuilder dropped, char c) {
+        if (dropped == null) {
+            dropped = new StringBuilder();
+        }
+        return dropped.append(c);
+    }
+
+    public static boolean jsonReadBoolean(JSONSource source) {
+        boolean value = source.getChar() == 't';
+        jsonReadLiteral(source, value ? "true" : "false");
+        return value;
+    }
+
+    public static void jsonReadNull(JSONSource source) {
+        jsonReadLiteral(source, "null");
+    }
+
+    /**
+     * Consumes @literal, char by char, failing at the first one that differs
+     */
+    private static void jsonReadLiteral(JSONSource source, String literal) {
+        for (int i = 0; i < literal.length(); ++i) {
+            if (source.nextChar() != literal.charAt(i)) {
+                throw new JSONUnexpectedToken("Invalid token, expected \"" + literal + "\".");
+            }
+        }
+    }
+
+    /**
+     * Tells whether @c ends a scalar value: a separator, a closing bracket, whitespace or the end of the document
+     */
+    public static boolean isValueEnd(char c) {
+        return c == ',' || c == '}' || c == ']' || c == 0 || JSONSource.isWhitespace(c);
+    }
 
-        return new JSONNull();
+    public static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
 
     public static boolean isHexDigit(char c) {
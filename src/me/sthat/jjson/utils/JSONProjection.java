@@ -0,0 +1,157 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.types.JSONPath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONProjection is a tree of the paths to load out of a document, in the dotted syntax of JSONObject#get.
+ * Each node holds the keys, or array indexes, wanted under it.
+ * @see JSONParser#jsonParseProjected(JSONSource, JSONProjection)
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONProjection {
+
+    private static final int[] NO_INDEXES = new int[0];
+    private static final JSONProjection[] NO_ELEMENTS = new JSONProjection[0];
+
+    private final Map<String, JSONProjection> children = new HashMap<>();
+    /* The array indexes wanted, in ascending order, and the node under each */
+    private int[] indexes = NO_INDEXES;
+    private JSONProjection[] elements = NO_ELEMENTS;
+    private boolean whole = false;
+
+    private JSONProjection() {
+    }
+
+    /**
+     * Builds the tree of @paths, such as "world.entities.2.name".
+     * A path that is a prefix of another wants the whole value, so the longer one adds nothing.
+     * The empty path wants the whole document.
+     * Segments are read as indexes by {@link JSONPath#parseIndex(String)}, as {@link me.sthat.jjson.types.JSONObject#get(String)} does.
+     */
+    public static JSONProjection of(Collection<String> paths) {
+        List<List<String>> segments = new ArrayList<>();
+        for (String path : paths) {
+            segments.add(path.isEmpty() ? Collections.emptyList() : Arrays.asList(path.split("\\.")));
+        }
+        return ofSegments(segments);
+    }
+
+    /**
+     * Same as {@link #of(Collection)}, with each path given as its segments, so names may hold dots
+     */
+    static JSONProjection ofSegments(Collection<List<String>> paths) {
+        return build(paths, 0);
+    }
+
+    /**
+     * Builds the node for the segments of @paths from @depth on.
+     * An object member is found by its exact name, while "1" and "01" both lead to the same array element,
+     * so the paths under each index are grouped again rather than taken from the names.
+     */
+    private static JSONProjection build(Collection<List<String>> paths, int depth) {
+        JSONProjection node = new JSONProjection();
+        Map<String, List<List<String>>> names = new HashMap<>();
+        TreeMap<Integer, List<List<String>>> indexes = new TreeMap<>();
+        for (List<String> path : paths) {
+            if (path.size() == depth) {
+                node.whole = true;
+                return node;
+            }
+
+            String segment = path.get(depth);
+            names.computeIfAbsent(segment, s -> new ArrayList<>()).add(path);
+            long index = JSONPath.parseIndex(segment);
+            if (index >= 0) {
+                indexes.computeIfAbsent((int) index, i -> new ArrayList<>()).add(path);
+            }
+        }
+
+        for (Map.Entry<String, List<List<String>>> entry : names.entrySet()) {
+            node.children.put(entry.getKey(), build(entry.getValue(), depth + 1));
+        }
+
+        node.indexes = new int[indexes.size()];
+        node.elements = new JSONProjection[indexes.size()];
+        int i = 0;
+        for (Map.Entry<Integer, List<List<String>>> entry : indexes.entrySet()) {
+            /* Most of the time the index is only ever written one way, whose node is shared */
+            String canonical = String.valueOf(entry.getKey());
+            List<List<String>> named = names.get(canonical);
+            node.indexes[i] = entry.getKey();
+            node.elements[i++] = named != null && named.size() == entry.getValue().size()
+                    ? node.children.get(canonical)
+                    : build(entry.getValue(), depth + 1);
+        }
+        return node;
+    }
+
+    /**
+     * @return
+     *      true if the whole value under this node is wanted
+     */
+    public boolean isWhole() {
+        return whole;
+    }
+
+    /**
+     * @return
+     *      The node under @key, or null if nothing under it is wanted
+     */
+    public JSONProjection get(String key) {
+        return children.get(key);
+    }
+
+    /**
+     * @return
+     *      The node under the array element at @index, or null if nothing under it is wanted
+     */
+    public JSONProjection get(int index) {
+        int found = Arrays.binarySearch(indexes, index);
+        return found < 0 ? null : elements[found];
+    }
+
+    /**
+     * @return
+     *      The highest array index wanted under this node, or -1 if there is none
+     */
+    public int getMaxIndex() {
+        return indexes.length == 0 ? -1 : indexes[indexes.length - 1];
+    }
+
+}
@@ -0,0 +1,425 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.exceptions.JSONBadFormat;
+import me.sthat.jjson.exceptions.JSONUnexpectedToken;
+import me.sthat.jjson.types.JSONIElement;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONPushParser parses UTF-8 input handed to it in chunks of any size, as they arrive.
+ * A token cut by the end of a chunk is suspended and picked up where it was left by the next one,
+ * so no whole message ever needs to be buffered.
+ * <br>
+ * Each part of the input is reported to a JSONHandler as soon as it is complete.
+ * Top level values can follow each other, separated by whitespace or not.
+ * Once an exception has been thrown the parser is left in an undefined state and must not be fed anymore.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONPushParser {
+
+    /* What the grammar allows next */
+    private static final int VALUE = 0, VALUE_OR_END = 1, KEY = 2, KEY_OR_END = 3, COLON = 4, COMMA_OR_END = 5;
+
+    /* The token being read, if any */
+    private static final int NONE = 0, STRING = 1, ESCAPE = 2, UNICODE = 3, NUMBER = 4, LITERAL = 5;
+
+    private final JSONHandler handler;
+
+    private int expect = VALUE;
+    private int token = NONE;
+
+    private boolean[] objects = new boolean[16];
+    private int depth = 0;
+
+    /* Raw bytes of the string or number being read, and the chars of the string decoded so far */
+    private byte[] bytes = new byte[64];
+    private int length = 0;
+    private final StringBuilder builder = new StringBuilder();
+    private boolean key;
+
+    private int unicodeValue, unicodeDigits;
+    private String literal;
+    private int literalIndex;
+
+    private JSONSourceArray number = new JSONSourceArray(bytes);
+
+    /**
+     * @param handler
+     *      Receives each part of the input as soon as it is read
+     */
+    public JSONPushParser(JSONHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * @param consumer
+     *      Receives each top level value as soon as it is complete
+     */
+    public JSONPushParser(Consumer<JSONIElement> consumer) {
+        this(new JSONTreeBuilder(consumer));
+    }
+
+    /**
+     * Parses all the bytes remaining in @chunk
+     */
+    public void feed(ByteBuffer chunk) {
+        while (chunk.hasRemaining()) {
+            switch (token) {
+                case STRING: {
+                    readString(chunk);
+                    continue;
+                }
+                case ESCAPE: {
+                    readEscape(chunk.get());
+                    continue;
+                }
+                case UNICODE: {
+                    int digit = Character.digit(chunk.get(), 16);
+                    if (digit < 0) {
+                        throw new JSONUnexpectedToken("Invalid unicode escape sequence");
+                    }
+                    unicodeValue = (unicodeValue << 4) | digit;
+                    if (++unicodeDigits == 4) {
+                        builder.append((char) unicodeValue);
+                        token = STRING;
+                    }
+                    continue;
+                }
+                case LITERAL: {
+                    byte b = chunk.get();
+                    if (b != literal.charAt(literalIndex++)) {
+                        throw new JSONUnexpectedToken("Unexpected " + (char) b + " in " + literal);
+                    }
+                    if (literalIndex == literal.length()) {
+                        token = NONE;
+                        endLiteral();
+                    }
+                    continue;
+                }
+                case NUMBER: {
+                    byte b = chunk.get(chunk.position());
+                    if (!isDelimiter(b)) {
+                        append(b);
+                        chunk.get();
+                        continue;
+                    }
+                    token = NONE;
+                    endNumber();
+                    break;
+                }
+            }
+
+            /* Between tokens */
+            byte b = chunk.get();
+            if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                continue;
+            }
+            readStructural(b);
+        }
+    }
+
+    /**
+     * Tells the parser the input is over, completing a top level number still waiting for its end
+     *
+     * @throws JSONBadFormat
+     *      If the input stops in the middle of a value
+     */
+    public void end() {
+        if (token == NUMBER && depth == 0) {
+            token = NONE;
+            endNumber();
+        }
+        if (token != NONE || depth > 0 || expect != VALUE) {
+            throw new JSONBadFormat("Unexpected end of document");
+        }
+    }
+
+    /**
+     * @return
+     *      true if the input fed so far ends between two top level values
+     */
+    public boolean isIdle() {
+        return token == NONE && depth == 0 && expect == VALUE;
+    }
+
+    private void readStructural(byte b) {
+        switch (expect) {
+            case COLON: {
+                if (b != ':') {
+                    throw new JSONUnexpectedToken("Expected ':' after key declaration, found " + (char) b + " instead");
+                }
+                expect = VALUE;
+                return;
+            }
+            case COMMA_OR_END: {
+                if (b == ',') {
+                    expect = objects[depth - 1] ? KEY : VALUE;
+                } else if (b == (objects[depth - 1] ? '}' : ']')) {
+                    close();
+                } else {
+                    throw new JSONUnexpectedToken("Missing closing bracket or comma after value declaration, found " + (char) b + " instead.");
+                }
+                return;
+            }
+            case KEY_OR_END:
+            case KEY: {
+                if (b == '"') {
+                    startString(true);
+                } else if (b == '}' && expect == KEY_OR_END) {
+                    close();
+                } else {
+                    throw new JSONUnexpectedToken("Expected '\"', found " + (char) b + " instead.");
+                }
+                return;
+            }
+            case VALUE_OR_END: {
+                if (b == ']') {
+                    close();
+                    return;
+                }
+                break;
+            }
+        }
+
+        switch (b) {
+            case '{': {
+                handler.startObject();
+                open(true);
+                expect = KEY_OR_END;
+                break;
+            }
+            case '[': {
+                handler.startArray();
+                open(false);
+                expect = VALUE_OR_END;
+                break;
+            }
+            case '"': {
+                startString(false);
+                break;
+            }
+            case 't': {
+                startLiteral("true");
+                break;
+            }
+            case 'f': {
+                startLiteral("false");
+                break;
+            }
+            case 'n': {
+                startLiteral("null");
+                break;
+            }
+            default: {
+                if (b != '-' && (b < '0' || b > '9')) {
+                    throw new JSONUnexpectedToken("Expected a value, found " + (char) b + " instead.");
+                }
+                token = NUMBER;
+                length = 0;
+                append(b);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Copies the run of bytes up to the next quote or backslash at once, ending the string if a quote is found
+     */
+    private void readString(ByteBuffer chunk) {
+        int from = chunk.position(), limit = chunk.limit();
+        int i = from;
+        byte b = 0;
+        while (i < limit && (b = chunk.get(i)) != '"' && b != '\\') {
+            ++i;
+        }
+
+        if (i < limit && b == '"' && length == 0 && builder.length() == 0 && chunk.hasArray()) {
+            /* The whole string is in this chunk, it is decoded straight from it */
+            endString(new String(chunk.array(), chunk.arrayOffset() + from, i - from, StandardCharsets.UTF_8));
+            chunk.position(i + 1);
+            return;
+        }
+
+        for (int j = from; j < i; ++j) {
+            append(chunk.get(j));
+        }
+        if (i == limit) {
+            chunk.position(limit);
+            return;
+        }
+
+        chunk.position(i + 1);
+        flush();
+        if (b == '"') {
+            endString(builder.toString());
+        } else {
+            token = ESCAPE;
+        }
+    }
+
+    private void readEscape(byte b) {
+        token = STRING;
+        switch (b) {
+            case '"':
+            case '\\':
+            case '/': {
+                builder.append((char) b);
+                break;
+            }
+            case 'b': {
+                builder.append('\b');
+                break;
+            }
+            case 'f': {
+                builder.append('\f');
+                break;
+            }
+            case 'n': {
+                builder.append('\n');
+                break;
+            }
+            case 'r': {
+                builder.append('\r');
+                break;
+            }
+            case 't': {
+                builder.append('\t');
+                break;
+            }
+            case 'u': {
+                token = UNICODE;
+                unicodeValue = 0;
+                unicodeDigits = 0;
+                break;
+            }
+            default: {
+                throw new JSONUnexpectedToken("Invalid escape sequence \\" + (char) b);
+            }
+        }
+    }
+
+    private void startString(boolean key) {
+        this.key = key;
+        token = STRING;
+        length = 0;
+        builder.setLength(0);
+    }
+
+    private void endString(String string) {
+        token = NONE;
+        if (key) {
+            handler.key(string);
+            expect = COLON;
+        } else {
+            handler.value(string);
+            endValue();
+        }
+    }
+
+    private void startLiteral(String literal) {
+        token = LITERAL;
+        this.literal = literal;
+        literalIndex = 1;
+    }
+
+    private void endLiteral() {
+        if (literal.equals("null")) {
+            handler.valueNull();
+        } else {
+            handler.value(literal.equals("true"));
+        }
+        endValue();
+    }
+
+    private void endNumber() {
+        number.offset = 0;
+        number.limit = length;
+        boolean isDouble = JSONParser.jsonReadNumber(number);
+        if (number.offset != length) {
+            throw new JSONUnexpectedToken("Invalid number " + new String(bytes, 0, length, StandardCharsets.ISO_8859_1));
+        }
+        if (isDouble) {
+            handler.value(number.doubleValue);
+        } else {
+            handler.value(number.longValue);
+        }
+        endValue();
+    }
+
+    private void endValue() {
+        expect = depth == 0 ? VALUE : COMMA_OR_END;
+    }
+
+    private void open(boolean object) {
+        if (depth == objects.length) {
+            objects = Arrays.copyOf(objects, depth * 2);
+        }
+        objects[depth++] = object;
+    }
+
+    private void close() {
+        if (objects[--depth]) {
+            handler.endObject();
+        } else {
+            handler.endArray();
+        }
+        endValue();
+    }
+
+    /**
+     * Moves the raw bytes read so far to the builder, decoding them
+     */
+    private void flush() {
+        builder.append(new String(bytes, 0, length, StandardCharsets.UTF_8));
+        length = 0;
+    }
+
+    private void append(byte b) {
+        if (length == bytes.length) {
+            bytes = Arrays.copyOf(bytes, length * 2);
+            number = new JSONSourceArray(bytes);
+        }
+        bytes[length++] = b;
+    }
+
+    /**
+     * Tells whether @b ends a number: whitespace or a structural char.
+     * Anything else is part of it, so a malformed number fails as a whole rather than being reported first.
+     */
+    private static boolean isDelimiter(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == ',' || b == ']' || b == '}' || b == ':'
+                || b == '[' || b == '{' || b == '"';
+    }
+
+}
@@ -0,0 +1,826 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.exceptions.JSONInvalidPath;
+import me.sthat.jjson.types.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONQuery is a JSONPath query compiled once into a list of selectors, then run as many times as needed.
+ * <br>
+ * Supported syntax:
+ * <pre>
+ *     $                   the root, it can be omitted
+ *     .name ['name']      a member of an object, or an index of an array if the name is a number
+ *     .* [*]              every member or element
+ *     ..                  recursive descent, followed by any of the other selectors
+ *     [1] [-1] [0,2]      indexes, counted from the end if negative
+ *     [1:5] [::2]         slices, with a positive step
+ *     [?(expression)]     the members or elements the expression holds for, such as [?(@.price &gt; 10 &amp;&amp; @.tags)].
+ *                         It compares paths relative to the element (@.a.b, @['a'][0]) and literals
+ *                         with == != &lt; &lt;= &gt; &gt;=, combined with &amp;&amp; || ! and parentheses.
+ *                         A bare operand holds if it exists and is neither false nor null.
+ * </pre>
+ * Queries run over a tree, or straight over a JSONReader, in which case only the values matched are built.
+ * Matches are reported in the order they are met walking the document, the members of a JSONObject in the order it iterates them.
+ * <br>
+ * Queries are immutable and can be shared between threads.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public final class JSONQuery {
+
+    private static final Object NULL = new Object();
+
+    private final String query;
+    private final Selector[] selectors;
+    private final boolean[] descendant;
+
+    /* One bit per selector: the ones that need the whole container or each child built to be tested, the recursive descents */
+    private final long needsSize, needsValue, descendants;
+
+    /* The bit of the state reached once every selector matched */
+    private final long match;
+
+    /* The members filters read, the only ones built when a filter tests a container streamed from a JSONReader */
+    private final JSONProjection fields;
+
+    private JSONQuery(String query, List<Selector> selectors, List<Boolean> descendant) {
+        this.query = query;
+        this.selectors = selectors.toArray(new Selector[0]);
+        this.descendant = new boolean[selectors.size()];
+        long needsSize = 0, needsValue = 0, descendants = 0;
+        List<List<String>> fields = new ArrayList<>();
+        for (int i = 0; i < this.selectors.length; ++i) {
+            this.descendant[i] = descendant.get(i);
+            if (this.descendant[i]) {
+                descendants |= 1L << i;
+            }
+            if (this.selectors[i] instanceof Filter) {
+                fields.addAll(((Filter) this.selectors[i]).fields);
+            }
+            if (this.selectors[i].needsSize()) {
+                needsSize |= 1L << i;
+            }
+            if (this.selectors[i].needsValue()) {
+                needsValue |= 1L << i;
+            }
+        }
+        this.needsSize = needsSize;
+        this.needsValue = needsValue;
+        this.descendants = descendants;
+        this.match = 1L << this.selectors.length;
+        this.fields = JSONProjection.ofSegments(fields);
+    }
+
+    /**
+     * Compiles @query, such as "$.items[?(@.price &gt; 10)].id"
+     *
+     * @throws JSONInvalidPath
+     *      If the query is not valid
+     */
+    public static JSONQuery compile(String query) {
+        return new Compiler(query).compile();
+    }
+
+    /**
+     * @return
+     *      Every value of @root matched by the query
+     */
+    public List<JSONIElement> select(JSONIElement root) {
+        List<JSONIElement> matches = new ArrayList<>();
+        select(root, matches::add);
+        return matches;
+    }
+
+    /**
+     * Reports every value of @root matched by the query to @consumer
+     */
+    public void select(JSONIElement root, Consumer<JSONIElement> consumer) {
+        visit(root, 1L, consumer);
+    }
+
+    /**
+     * Reports every value matched by the query to @consumer, reading the rest of the document from @reader.
+     * Values not on the way to a match are skipped by bracket matching, only the values matched are built.
+     * A filter is tested against the members it reads alone, negative indexes need the whole container built.
+     * <br>
+     * Each top level value left in the reader is queried in turn.
+     */
+    public void select(JSONReader reader, Consumer<JSONIElement> consumer) {
+        while (reader.nextToken() != null) {
+            visit(reader, 1L, consumer);
+        }
+    }
+
+    public String toString() {
+        return query;
+    }
+
+    private void visit(JSONIElement node, long states, Consumer<JSONIElement> consumer) {
+        if ((states & match) != 0) {
+            consumer.accept(node);
+            states &= ~match;
+        }
+        if (states == 0) {
+            return;
+        }
+
+        if (node instanceof JSONObject) {
+            for (Map.Entry<String, JSONIElement> entry : ((JSONObject) node).getValue().entrySet()) {
+                long next = transition(states, entry.getKey(), -1, -1, entry.getValue());
+                if (next != 0) {
+                    visit(entry.getValue(), next, consumer);
+                }
+            }
+        } else if (node instanceof JSONArray) {
+            List<JSONIElement> list = ((JSONArray) node).asList();
+            for (int i = 0; i < list.size(); ++i) {
+                long next = transition(states, null, i, list.size(), list.get(i));
+                if (next != 0) {
+                    visit(list.get(i), next, consumer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #visit(JSONIElement, long, Consumer)}, for the value whose first token is the current one
+     */
+    private void visit(JSONReader reader, long states, Consumer<JSONIElement> consumer) {
+        JSONToken token = reader.currentToken();
+        boolean object = token == JSONToken.START_OBJECT;
+        if (!object && token != JSONToken.START_ARRAY) {
+            if ((states & match) != 0) {
+                consumer.accept(reader.readTree());
+            }
+            return;
+        }
+
+        if ((states & (match | needsSize)) != 0) {
+            visit(reader.readTree(), states, consumer);
+            return;
+        }
+
+        boolean values = (states & needsValue) != 0;
+        for (int index = 0; ; ++index) {
+            token = reader.nextToken();
+            if (token == JSONToken.END_OBJECT || token == JSONToken.END_ARRAY) {
+                return;
+            }
+
+            String key = null;
+            if (object) {
+                key = reader.stringValue();
+                reader.nextToken();
+            }
+
+            if (values) {
+                /*
+                 * Unless a recursive descent walks into it anyway, a container is tested against the members filters read alone.
+                 * It is only read again if it gets past them.
+                 */
+                if ((states & descendants) == 0 && !fields.isWhole()) {
+                    JSONIElement child = reader.readProjected(fields);
+                    if (child != null) {
+                        long next = transition(states, key, object ? -1 : index, -1, child);
+                        if (next != 0) {
+                            JSONReader rest = new JSONReader(reader.projectedSource());
+                            rest.nextToken();
+                            visit(rest, next, consumer);
+                        }
+                        continue;
+                    }
+                }
+
+                JSONIElement child = reader.readTree();
+                long next = transition(states, key, object ? -1 : index, -1, child);
+                if (next != 0) {
+                    visit(child, next, consumer);
+                }
+            } else {
+                long next = transition(states, key, object ? -1 : index, -1, null);
+                if (next != 0) {
+                    visit(reader, next, consumer);
+                } else {
+                    reader.skipChildren();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return
+     *      The states reached by a child of a node in @states.
+     *      State k means the first k selectors matched, every state of a recursive descent selector carries over to the children.
+     */
+    private long transition(long states, String key, int index, int size, JSONIElement child) {
+        long next = 0;
+        for (long pending = states & ~match; pending != 0; pending &= pending - 1) {
+            int k = Long.numberOfTrailingZeros(pending);
+            if (descendant[k]) {
+                next |= 1L << k;
+            }
+            if (selectors[k].test(key, index, size, child)) {
+                next |= 1L << (k + 1);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Picks the members or the elements of a container
+     */
+    private static abstract class Selector {
+
+        /**
+         * @param key
+         *      The key of the member, or null for an array element
+         * @param index
+         *      The index of the element, or -1 for an object member
+         * @param size
+         *      The size of the array, only known if {@link #needsSize()}
+         * @param child
+         *      The member or the element, only known if {@link #needsValue()}
+         */
+        abstract boolean test(String key, int index, int size, JSONIElement child);
+
+        boolean needsSize() {
+            return false;
+        }
+
+        boolean needsValue() {
+            return false;
+        }
+    }
+
+    private static class Wildcard extends Selector {
+
+        boolean test(String key, int index, int size, JSONIElement child) {
+            return true;
+        }
+    }
+
+    private static class Names extends Selector {
+
+        private final String[] names;
+
+        Names(List<String> names) {
+            this.names = names.toArray(new String[0]);
+        }
+
+        boolean test(String key, int index, int size, JSONIElement child) {
+            String name = key != null ? key : String.valueOf(index);
+            for (String n : names) {
+                if (n.equals(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Indexes extends Selector {
+
+        private final int[] indexes;
+
+        Indexes(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        boolean test(String key, int index, int size, JSONIElement child) {
+            if (key != null) {
+                return false;
+            }
+            for (int i : indexes) {
+                if ((i < 0 ? size + i : i) == index) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean needsSize() {
+            for (int i : indexes) {
+                if (i < 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Slice extends Selector {
+
+        /* A missing end is stored as Integer.MAX_VALUE */
+        private final int start, end, step;
+
+        Slice(int start, int end, int step) {
+            this.start = start;
+            this.end = end;
+            this.step = step;
+        }
+
+        boolean test(String key, int index, int size, JSONIElement child) {
+            if (key != null) {
+                return false;
+            }
+            int from = start < 0 ? Math.max(0, size + start) : start;
+            int to = end < 0 ? size + end : end;
+            return index >= from && index < to && (index - from) % step == 0;
+        }
+
+        boolean needsSize() {
+            return start < 0 || end < 0;
+        }
+    }
+
+    private static class Filter extends Selector {
+
+        private final Expression expression;
+
+        /* The paths the expression reads, as segments */
+        private final List<List<String>> fields;
+
+        Filter(Expression expression, List<List<String>> fields) {
+            this.expression = expression;
+            this.fields = fields;
+        }
+
+        boolean test(String key, int index, int size, JSONIElement child) {
+            return isTrue(expression.evaluate(child));
+        }
+
+        boolean needsValue() {
+            return true;
+        }
+    }
+
+    /**
+     * Part of a filter, evaluated against the member or element being tested
+     */
+    private interface Expression {
+
+        /**
+         * @return
+         *      A Long, Double, String, Boolean, NULL, a container, or null if a path leads nowhere
+         */
+        Object evaluate(JSONIElement current);
+    }
+
+    private static boolean isTrue(Object value) {
+        return value != null && value != NULL && !Boolean.FALSE.equals(value);
+    }
+
+    private static Object valueOf(JSONIElement element) {
+        if (element == null) {
+            return null;
+        }
+        if (element instanceof JSONNull) {
+            return NULL;
+        }
+        if (element instanceof JSONAbstractValue) {
+            return ((JSONAbstractValue<?>) element).getValue();
+        }
+        return element;
+    }
+
+    /**
+     * @return
+     *      The order of @a and @b if they are both numbers or both strings, null otherwise
+     */
+    private static Integer order(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            if (a instanceof Long && b instanceof Long) {
+                return Long.compare((Long) a, (Long) b);
+            }
+            double x = ((Number) a).doubleValue(), y = ((Number) b).doubleValue();
+            return x < y ? -1 : x > y ? 1 : 0;
+        }
+        if (a instanceof String && b instanceof String) {
+            return ((String) a).compareTo((String) b);
+        }
+        return null;
+    }
+
+    private static Expression compare(Expression left, String operator, Expression right) {
+        return current -> {
+            Object a = left.evaluate(current), b = right.evaluate(current);
+            if (a == null || b == null) {
+                return false;
+            }
+
+            Integer order = order(a, b);
+            switch (operator) {
+                case "==": {
+                    return order != null ? order == 0 : Objects.equals(a, b);
+                }
+                case "!=": {
+                    return order != null ? order != 0 : !Objects.equals(a, b);
+                }
+                case "<": {
+                    return order != null && order < 0;
+                }
+                case "<=": {
+                    return order != null && order <= 0;
+                }
+                case ">": {
+                    return order != null && order > 0;
+                }
+                default: {
+                    return order != null && order >= 0;
+                }
+            }
+        };
+    }
+
+    /**
+     * Turns the text of a query into selectors
+     */
+    private static class Compiler {
+
+        private static final String[] OPERATORS = {"==", "!=", "<=", ">=", "<", ">"};
+
+        private final String query;
+        private int position = 0;
+
+        private final List<Selector> selectors = new ArrayList<>();
+        private final List<Boolean> descendant = new ArrayList<>();
+
+        /* The paths read by the filter being compiled */
+        private List<List<String>> fields;
+
+        Compiler(String query) {
+            this.query = query;
+        }
+
+        JSONQuery compile() {
+            if (peek('$')) {
+                ++position;
+            } else if (position < query.length() && !peek('.') && !peek('[')) {
+                /* A query can start with a bare name, as in "items[0]" */
+                add(readMember(), false);
+            }
+
+            while (position < query.length()) {
+                if (query.startsWith("..", position)) {
+                    position += 2;
+                    add(peek('[') ? readBracket() : readMember(), true);
+                } else if (peek('.')) {
+                    ++position;
+                    add(readMember(), false);
+                } else if (peek('[')) {
+                    add(readBracket(), false);
+                } else {
+                    throw error("Expected '.' or '['");
+                }
+            }
+
+            if (selectors.size() > 63) {
+                throw error("Too many selectors");
+            }
+            return new JSONQuery(query, selectors, descendant);
+        }
+
+        private void add(Selector selector, boolean descendant) {
+            selectors.add(selector);
+            this.descendant.add(descendant);
+        }
+
+        /**
+         * Reads the name or the wildcard after a dot
+         */
+        private Selector readMember() {
+            if (peek('*')) {
+                ++position;
+                return new Wildcard();
+            }
+
+            int start = position;
+            while (position < query.length() && !peek('.') && !peek('[')) {
+                ++position;
+            }
+            if (start == position) {
+                throw error("Expected a name");
+            }
+
+            List<String> names = new ArrayList<>();
+            names.add(query.substring(start, position));
+            return new Names(names);
+        }
+
+        private Selector readBracket() {
+            expect('[');
+            Selector selector;
+            skipSpaces();
+            if (peek('*')) {
+                ++position;
+                selector = new Wildcard();
+            } else if (peek('?')) {
+                ++position;
+                skipSpaces();
+                expect('(');
+                fields = new ArrayList<>();
+                selector = new Filter(readOr(), fields);
+                skipSpaces();
+                expect(')');
+            } else if (peek('\'') || peek('"')) {
+                List<String> names = new ArrayList<>();
+                do {
+                    skipSpaces();
+                    names.add(readQuoted());
+                    skipSpaces();
+                } while (accept(','));
+                selector = new Names(names);
+            } else {
+                selector = readIndexes();
+            }
+            skipSpaces();
+            expect(']');
+            return selector;
+        }
+
+        /**
+         * Reads a list of indexes, or a slice
+         */
+        private Selector readIndexes() {
+            Integer first = readInteger();
+            skipSpaces();
+            if (accept(':')) {
+                skipSpaces();
+                Integer end = readInteger();
+                int step = 1;
+                skipSpaces();
+                if (accept(':')) {
+                    skipSpaces();
+                    Integer s = readInteger();
+                    step = s == null ? 1 : s;
+                }
+                if (step <= 0) {
+                    throw error("The step of a slice must be positive");
+                }
+                return new Slice(first == null ? 0 : first, end == null ? Integer.MAX_VALUE : end, step);
+            }
+
+            List<Integer> indexes = new ArrayList<>();
+            do {
+                skipSpaces();
+                Integer index = indexes.isEmpty() ? first : readInteger();
+                if (index == null) {
+                    throw error("Expected an index");
+                }
+                indexes.add(index);
+                skipSpaces();
+            } while (accept(','));
+            return new Indexes(indexes.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        private Expression readOr() {
+            Expression left = readAnd();
+            while (true) {
+                skipSpaces();
+                if (!query.startsWith("||", position)) {
+                    return left;
+                }
+                position += 2;
+                Expression a = left, b = readAnd();
+                left = current -> isTrue(a.evaluate(current)) || isTrue(b.evaluate(current));
+            }
+        }
+
+        private Expression readAnd() {
+            Expression left = readUnary();
+            while (true) {
+                skipSpaces();
+                if (!query.startsWith("&&", position)) {
+                    return left;
+                }
+                position += 2;
+                Expression a = left, b = readUnary();
+                left = current -> isTrue(a.evaluate(current)) && isTrue(b.evaluate(current));
+            }
+        }
+
+        private Expression readUnary() {
+            skipSpaces();
+            if (peek('!') && !query.startsWith("!=", position)) {
+                ++position;
+                Expression operand = readUnary();
+                return current -> !isTrue(operand.evaluate(current));
+            }
+            if (accept('(')) {
+                Expression inner = readOr();
+                skipSpaces();
+                expect(')');
+                return inner;
+            }
+
+            Expression left = readOperand();
+            skipSpaces();
+            for (String operator : OPERATORS) {
+                if (query.startsWith(operator, position)) {
+                    position += operator.length();
+                    return compare(left, operator, readOperand());
+                }
+            }
+            return left;
+        }
+
+        private Expression readOperand() {
+            skipSpaces();
+            if (accept('@')) {
+                return readRelativePath();
+            }
+            if (peek('\'') || peek('"')) {
+                String literal = readQuoted();
+                return current -> literal;
+            }
+            for (String keyword : new String[]{"true", "false", "null"}) {
+                if (query.startsWith(keyword, position)) {
+                    position += keyword.length();
+                    Object literal = keyword.equals("null") ? NULL : Boolean.valueOf(keyword);
+                    return current -> literal;
+                }
+            }
+
+            int start = position;
+            while (position < query.length() && "+-.eE0123456789".indexOf(query.charAt(position)) >= 0) {
+                ++position;
+            }
+            String number = query.substring(start, position);
+            try {
+                Object literal = number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0
+                        ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+                return current -> literal;
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("Expected a value");
+            }
+        }
+
+        /**
+         * Reads the path after '@', made of names and indexes only
+         */
+        private Expression readRelativePath() {
+            List<Object> segments = new ArrayList<>();
+            while (true) {
+                if (accept('.')) {
+                    int start = position;
+                    while (position < query.length() && (Character.isLetterOrDigit(query.charAt(position)) || peek('_') || peek('$'))) {
+                        ++position;
+                    }
+                    if (start == position) {
+                        throw error("Expected a name");
+                    }
+                    segments.add(query.substring(start, position));
+                } else if (accept('[')) {
+                    skipSpaces();
+                    if (peek('\'') || peek('"')) {
+                        segments.add(readQuoted());
+                    } else {
+                        Integer index = readInteger();
+                        if (index == null) {
+                            throw error("Expected an index");
+                        }
+                        segments.add(index);
+                    }
+                    skipSpaces();
+                    expect(']');
+                } else {
+                    break;
+                }
+            }
+
+            fields.add(field(segments));
+            Object[] path = segments.toArray();
+            return current -> {
+                JSONIElement element = current;
+                for (Object segment : path) {
+                    if (element instanceof JSONObject && segment instanceof String) {
+                        element = ((JSONObject) element).getValue().get(segment);
+                    } else if (element instanceof JSONArray) {
+                        List<JSONIElement> list = ((JSONArray) element).asList();
+                        long index = segment instanceof Integer ? (Integer) segment : JSONPath.parseIndex((String) segment);
+                        if (index < 0) {
+                            index += list.size();
+                        }
+                        element = index >= 0 && index < list.size() ? list.get((int) index) : null;
+                    } else {
+                        return null;
+                    }
+                }
+                return valueOf(element);
+            };
+        }
+
+        /**
+         * @return
+         *      The part of @segments a filter needs built: all of them, or those before an index counted from the end,
+         *      which needs the whole array
+         */
+        private static List<String> field(List<Object> segments) {
+            List<String> field = new ArrayList<>();
+            for (Object segment : segments) {
+                long index = segment instanceof Integer ? (Integer) segment : JSONPath.parseIndex((String) segment);
+                if (index < 0 && index != JSONPath.NOT_AN_INDEX) {
+                    break;
+                }
+                field.add(String.valueOf(segment));
+            }
+            return field;
+        }
+
+        private String readQuoted() {
+            char quote = query.charAt(position++);
+            StringBuilder builder = new StringBuilder();
+            while (position < query.length() && query.charAt(position) != quote) {
+                char c = query.charAt(position++);
+                if (c == '\\' && position < query.length()) {
+                    c = query.charAt(position++);
+                }
+                builder.append(c);
+            }
+            expect(quote);
+            return builder.toString();
+        }
+
+        private Integer readInteger() {
+            int start = position;
+            if (peek('-')) {
+                ++position;
+            }
+            while (position < query.length() && JSONParser.isDigit(query.charAt(position))) {
+                ++position;
+            }
+            if (position == start || (position == start + 1 && query.charAt(start) == '-')) {
+                position = start;
+                return null;
+            }
+            try {
+                return Integer.parseInt(query.substring(start, position));
+            } catch (NumberFormatException e) {
+                position = start;
+                throw error("Index out of range");
+            }
+        }
+
+        private void skipSpaces() {
+            while (peek(' ')) {
+                ++position;
+            }
+        }
+
+        private boolean peek(char c) {
+            return position < query.length() && query.charAt(position) == c;
+        }
+
+        private boolean accept(char c) {
+            if (peek(c)) {
+                ++position;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!accept(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        private JSONInvalidPath error(String reason) {
+            return new JSONInvalidPath(reason + " at " + position + " in query " + query);
+        }
+    }
+
+}
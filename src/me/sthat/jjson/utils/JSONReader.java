@@ -0,0 +1,442 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.exceptions.JSONBadFormat;
+import me.sthat.jjson.exceptions.JSONTypeMismatch;
+import me.sthat.jjson.exceptions.JSONUnexpectedToken;
+import me.sthat.jjson.types.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONReader walks a document one token at a time, without building any JSONIElement.
+ * It is meant for hot paths that only need a few values out of each document:
+ * everything else can be stepped over with {@link #skipChildren()}.
+ * <br>
+ * String values are only decoded if {@link #stringValue()} is called, otherwise they are skipped.
+ * <br>
+ * Example:
+ * <pre>
+ *     JSONReader reader = new JSONReader(source);
+ *     while (reader.nextToken() != null) {
+ *         if (reader.currentToken() == JSONToken.INTEGER &amp;&amp; "id".equals(reader.currentName())) {
+ *             long id = reader.longValue();
+ *         }
+ *     }
+ * </pre>
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONReader implements Closeable {
+
+    private final JSONSource source;
+
+    private JSONToken token;
+
+    /* One entry per open container: whether it is an object and the name of its current field */
+    private boolean[] objects = new boolean[16];
+    private String[] names = new String[16];
+    private int depth = 0;
+
+    /* True right after a container has been opened, before its first value */
+    private boolean first = false;
+
+    private boolean pendingString = false;
+    private String stringValue;
+    private long longValue;
+    private double doubleValue;
+    private boolean booleanValue;
+
+    /* Where the container last read by readProjected starts, and a copy of its text if the source has no random access */
+    private long projectedStart;
+    private byte[] projectedText;
+
+    public JSONReader(JSONSource source) {
+        this.source = source;
+    }
+
+    public JSONReader(String buffer) {
+        this(new JSONSourceString(buffer));
+    }
+
+    /**
+     * Moves to the next token.
+     * Top level values can follow each other, separated by whitespace.
+     *
+     * @return
+     *      The token just reached, or null if the end of the document was reached.
+     */
+    public JSONToken nextToken() {
+        if (pendingString) {
+            JSONParser.jsonSkipString(source);
+            pendingString = false;
+        }
+        stringValue = null;
+
+        source.skipWhitespace();
+        if (depth == 0) {
+            return token = source.end() ? null : readValue();
+        }
+
+        char c = source.getChar();
+        if (objects[depth - 1]) {
+            if (token == JSONToken.FIELD_NAME) {
+                if (c != ':') {
+                    throw new JSONUnexpectedToken("Expected ':' after key declaration, found " + c + " instead");
+                }
+                source.next();
+                source.skipWhitespace();
+                return token = readValue();
+            }
+
+            if (c == '}') {
+                source.next();
+                --depth;
+                first = false;
+                return token = JSONToken.END_OBJECT;
+            }
+            if (!first) {
+                if (c != ',') {
+                    throw new JSONUnexpectedToken("Missing closing bracket or comma after value declaration, found " + c + " instead.");
+                }
+                source.next();
+                source.skipWhitespace();
+                c = source.getChar();
+            }
+            if (c != '"') {
+                throw new JSONUnexpectedToken("Expected '\"', found " + c + " instead.");
+            }
+
+            first = false;
+            names[depth - 1] = JSONParser.jsonReadKey(source);
+            return token = JSONToken.FIELD_NAME;
+        }
+
+        if (c == ']') {
+            source.next();
+            --depth;
+            first = false;
+            return token = JSONToken.END_ARRAY;
+        }
+        if (!first) {
+            if (c != ',') {
+                throw new JSONUnexpectedToken("Missing closing square bracket.");
+            }
+            source.next();
+            source.skipWhitespace();
+        }
+
+        first = false;
+        return token = readValue();
+    }
+
+    /**
+     * If the current token opens an object or an array, moves to the token that closes it.
+     * Everything in between is skipped by bracket matching, without being parsed.
+     * It does nothing for any other token.
+     */
+    public void skipChildren() {
+        if (token != JSONToken.START_OBJECT && token != JSONToken.START_ARRAY) {
+            return;
+        }
+
+        JSONParser.jsonSkipContainer(source);
+        --depth;
+        first = false;
+        token = token == JSONToken.START_OBJECT ? JSONToken.END_OBJECT : JSONToken.END_ARRAY;
+    }
+
+    /**
+     * Builds the container the current token starts with only the members @projection wants, moving to its last token,
+     * as {@link JSONParser#jsonParseProjected(JSONSource, JSONProjection)} does. Everything else is skipped by bracket matching.
+     * The text of the container is kept, so it can be read again from {@link #projectedSource()}.
+     *
+     * @return
+     *      The container, or null, having read nothing, if the current token doesn't open one or its text can't be kept
+     */
+    JSONIElement readProjected(JSONProjection projection) {
+        if (token != JSONToken.START_OBJECT && token != JSONToken.START_ARRAY) {
+            return null;
+        }
+
+        JSONSourceBytes bytes = null;
+        if (source instanceof JSONIRandomAccess) {
+            projectedStart = ((JSONIRandomAccess) source).position() - 1;
+            projectedText = null;
+        } else if (source instanceof JSONSourceBytes) {
+            /* The text is copied out before the buffer moves on */
+            bytes = (JSONSourceBytes) source;
+            bytes.mark(bytes.offset - 1);
+        } else {
+            return null;
+        }
+
+        boolean object = token == JSONToken.START_OBJECT;
+        JSONIElement container;
+        try {
+            container = object ? JSONParser.jsonParseProjectedObject(source, projection) : JSONParser.jsonParseProjectedArray(source, projection);
+        } finally {
+            if (bytes != null) {
+                projectedText = bytes.unmark();
+            }
+        }
+
+        --depth;
+        first = false;
+        token = object ? JSONToken.END_OBJECT : JSONToken.END_ARRAY;
+        return container;
+    }
+
+    /**
+     * @return
+     *      A source with random access over the text of the container last read by {@link #readProjected(JSONProjection)},
+     *      from its opening bracket
+     */
+    JSONSource projectedSource() {
+        if (projectedText == null) {
+            return ((JSONIRandomAccess) source).at(projectedStart);
+        }
+
+        JSONSourceArray text = new JSONSourceArray(projectedText);
+        text.setKeyCache(source.getKeyCache());
+        text.shapes = source.getShapes();
+        return text;
+    }
+
+    /**
+     * Builds the value the current token starts, moving to its last token.
+     * It is meant to pull single values out of a document otherwise walked token by token.
+     */
+    public JSONIElement readTree() {
+        switch (token) {
+            case START_OBJECT:
+            case START_ARRAY: {
+                JSONIElement[] tree = new JSONIElement[1];
+                JSONTreeBuilder builder = new JSONTreeBuilder(element -> tree[0] = element);
+                int level = depth;
+                report(builder);
+                do {
+                    nextToken();
+                    report(builder);
+                } while (depth >= level);
+                return tree[0];
+            }
+            case STRING: {
+                return new JSONString(stringValue());
+            }
+            case INTEGER: {
+                return JSONInteger.valueOf(longValue);
+            }
+            case DOUBLE: {
+                return new JSONDouble(doubleValue);
+            }
+            case BOOLEAN: {
+                return JSONBoolean.valueOf(booleanValue);
+            }
+            case NULL: {
+                return JSONNull.NULL;
+            }
+            default: {
+                throw new JSONTypeMismatch(token + " does not start a value");
+            }
+        }
+    }
+
+    /**
+     * Reports the current token to @handler
+     */
+    private void report(JSONHandler handler) {
+        switch (token) {
+            case START_OBJECT: {
+                handler.startObject();
+                break;
+            }
+            case END_OBJECT: {
+                handler.endObject();
+                break;
+            }
+            case START_ARRAY: {
+                handler.startArray();
+                break;
+            }
+            case END_ARRAY: {
+                handler.endArray();
+                break;
+            }
+            case FIELD_NAME: {
+                handler.key(names[depth - 1]);
+                break;
+            }
+            case STRING: {
+                handler.value(stringValue());
+                break;
+            }
+            case INTEGER: {
+                handler.value(longValue);
+                break;
+            }
+            case DOUBLE: {
+                handler.value(doubleValue);
+                break;
+            }
+            case BOOLEAN: {
+                handler.value(booleanValue);
+                break;
+            }
+            case NULL: {
+                handler.valueNull();
+                break;
+            }
+        }
+    }
+
+    public JSONToken currentToken() {
+        return token;
+    }
+
+    /**
+     * @return
+     *      The name of the field the current token belongs to, or null if it is not inside an object.<br>
+     *      For START_OBJECT and START_ARRAY it is the name of the container itself.
+     */
+    public String currentName() {
+        if (token == JSONToken.START_OBJECT || token == JSONToken.START_ARRAY) {
+            return depth > 1 && objects[depth - 2] ? names[depth - 2] : null;
+        }
+        return depth > 0 && objects[depth - 1] ? names[depth - 1] : null;
+    }
+
+    /**
+     * @return
+     *      How many containers are currently open
+     */
+    public int depth() {
+        return depth;
+    }
+
+    public String stringValue() {
+        if (token == JSONToken.FIELD_NAME) {
+            return names[depth - 1];
+        }
+        if (token != JSONToken.STRING) {
+            throw new JSONTypeMismatch(token + " cannot be cast to String");
+        }
+
+        if (pendingString) {
+            stringValue = JSONParser.jsonReadString(source);
+            pendingString = false;
+        }
+        return stringValue;
+    }
+
+    public long longValue() {
+        if (token != JSONToken.INTEGER) {
+            throw new JSONTypeMismatch(token + " cannot be cast to long");
+        }
+        return longValue;
+    }
+
+    public double doubleValue() {
+        if (token == JSONToken.INTEGER) {
+            return longValue;
+        }
+        if (token != JSONToken.DOUBLE) {
+            throw new JSONTypeMismatch(token + " cannot be cast to double");
+        }
+        return doubleValue;
+    }
+
+    public boolean booleanValue() {
+        if (token != JSONToken.BOOLEAN) {
+            throw new JSONTypeMismatch(token + " cannot be cast to boolean");
+        }
+        return booleanValue;
+    }
+
+    private JSONToken readValue() {
+        switch (source.getChar()) {
+            case '{': {
+                source.next();
+                push(true);
+                return JSONToken.START_OBJECT;
+            }
+            case '[': {
+                source.next();
+                push(false);
+                return JSONToken.START_ARRAY;
+            }
+            case '"': {
+                pendingString = true;
+                return JSONToken.STRING;
+            }
+            case 't':
+            case 'f': {
+                booleanValue = JSONParser.jsonReadBoolean(source);
+                return JSONToken.BOOLEAN;
+            }
+            case 'n': {
+                JSONParser.jsonReadNull(source);
+                return JSONToken.NULL;
+            }
+            default: {
+                if (source.end()) {
+                    throw new JSONBadFormat("Unexpected end of document");
+                }
+                if (JSONParser.jsonReadNumber(source)) {
+                    doubleValue = source.doubleValue;
+                    return JSONToken.DOUBLE;
+                }
+                longValue = source.longValue;
+                return JSONToken.INTEGER;
+            }
+        }
+    }
+
+    private void push(boolean object) {
+        if (depth == objects.length) {
+            objects = Arrays.copyOf(objects, depth * 2);
+            names = Arrays.copyOf(names, depth * 2);
+        }
+        objects[depth] = object;
+        names[depth] = null;
+        ++depth;
+        first = true;
+    }
+
+    /**
+     * Closes the underlying source, if it can be closed
+     */
+    public void close() throws IOException {
+        if (source instanceof Closeable) {
+            ((Closeable) source).close();
+        }
+    }
+
+}
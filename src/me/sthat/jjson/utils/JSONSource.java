@@ -0,0 +1,205 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.exceptions.JSONBadFormat;
+import me.sthat.jjson.exceptions.JSONUnexpectedToken;
+import me.sthat.jjson.types.JSONShape;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONSource is the base class of everything JSONParser can read from.
+ * It exposes the document one char at a time, the way JSONSourceString always did,
+ * so the parser doesn't need to know whether it is reading a String or raw bytes.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public abstract class JSONSource {
+
+    /* Where JSONParser#jsonReadNumber leaves the last number it read */
+    long longValue;
+    double doubleValue;
+
+    protected JSONKeyCache keyCache;
+
+    /* Root of the shapes the objects read from this source share, made on first use */
+    protected JSONShape shapes;
+
+    /* Reused by every string with escapes, and by the literals, so reading them allocates only the result */
+    private StringBuilder scratch;
+
+    public abstract char getChar();
+
+    public abstract char nextChar();
+
+    public abstract void next();
+
+    public abstract boolean end();
+
+    public boolean assertNextCharIs(char c) {
+        return nextChar() == c;
+    }
+
+    /**
+     * Moves the offset past any whitespace between tokens.
+     * Sources are free to override this with a faster loop over their own buffer.
+     */
+    public void skipWhitespace() {
+        while (!end() && isWhitespace(getChar())) {
+            next();
+        }
+    }
+
+    /**
+     * Reads the rest of a string whose opening quote has already been consumed, decoding its escape sequences.
+     * Sources override this to copy the runs without escapes in bulk.
+     */
+    public String readString() {
+        StringBuilder builder = scratch();
+        readEscaped(builder);
+        return builder.toString();
+    }
+
+    /**
+     * Reads the rest of an object key whose opening quote has already been consumed.
+     * If a key cache is set, the cached instance is returned for keys already seen.
+     * Sources override this to look the key up without building it first.
+     */
+    public String readKey() {
+        String key = readString();
+        return keyCache == null ? key : keyCache.intern(key);
+    }
+
+    /**
+     * Sets the cache object keys are canonicalized through, or null to disable it
+     */
+    public void setKeyCache(JSONKeyCache keyCache) {
+        this.keyCache = keyCache;
+    }
+
+    public JSONKeyCache getKeyCache() {
+        return keyCache;
+    }
+
+    /**
+     * @return
+     *      The root of the shapes objects read from this source are built with, see {@link JSONShape}.
+     *      A new one is started once the current one is full.
+     */
+    public JSONShape getShapes() {
+        if (shapes == null || shapes.isFull()) {
+            shapes = JSONShape.root();
+        }
+        return shapes;
+    }
+
+    /**
+     * Moves past the rest of a string whose opening quote has already been consumed
+     */
+    public void skipString() {
+        char c;
+        while ((c = nextChar()) != '"') {
+            if (c == '\\') {
+                nextChar();
+            } else if (c == 0 && end()) {
+                throw new JSONBadFormat("Missing closing quote");
+            }
+        }
+    }
+
+    /**
+     * @return
+     *      The scratch builder of this source, emptied
+     */
+    protected StringBuilder scratch() {
+        if (scratch == null) {
+            scratch = new StringBuilder(64);
+        }
+        scratch.setLength(0);
+        return scratch;
+    }
+
+    /**
+     * The slow path of {@link #readString()}: appends the rest of the string to @builder one char at a time
+     */
+    protected void readEscaped(StringBuilder builder) {
+        char c;
+        while ((c = nextChar()) != '"') {
+            if (c == '\\') {
+                builder.append(readEscape());
+            } else if (c == 0 && end()) {
+                throw new JSONBadFormat("Missing closing quote");
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+
+    /**
+     * Decodes the escape sequence after a backslash
+     */
+    private char readEscape() {
+        char c = nextChar();
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u': {
+                int value = 0;
+                for (int i = 0; i < 4; ++i) {
+                    int digit = Character.digit(nextChar(), 16);
+                    if (digit < 0) {
+                        throw new JSONUnexpectedToken("Invalid unicode escape sequence");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            }
+            default: {
+                if (c == 0 && end()) {
+                    throw new JSONBadFormat("Missing closing quote");
+                }
+                throw new JSONUnexpectedToken("Invalid escape sequence \\" + c);
+            }
+        }
+    }
+
+    public static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+}
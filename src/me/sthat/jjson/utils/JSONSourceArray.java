@@ -0,0 +1,75 @@
+package me.sthat.jjson.utils;
+
+import java.nio.ByteBuffer;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONSourceArray reads a UTF-8 document, or a part of it, already held in a byte array
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONSourceArray extends JSONSourceBytes implements JSONIRandomAccess {
+
+    public JSONSourceArray(byte[] array) {
+        this(array, 0, array.length);
+    }
+
+    /**
+     * Reads @array from @from up to @to, excluded
+     */
+    public JSONSourceArray(byte[] array, int from, int to) {
+        super(ByteBuffer.wrap(array), to);
+        this.offset = from;
+    }
+
+    /**
+     * Points the source at @array from @from up to @to, excluded, so its scratch buffers are reused rather than made again
+     */
+    public JSONSourceArray reset(byte[] array, int from, int to) {
+        reset(window.array() == array ? window : ByteBuffer.wrap(array), from, to);
+        return this;
+    }
+
+    protected int refill(int keep) {
+        return -1;
+    }
+
+    @Override
+    public long position() {
+        return offset;
+    }
+
+    @Override
+    public JSONSource at(long position) {
+        JSONSourceArray source = new JSONSourceArray(window.array(), (int) position, limit);
+        source.keyCache = keyCache;
+        source.shapes = getShapes();
+        return source;
+    }
+
+}
@@ -0,0 +1,351 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.exceptions.JSONBadFormat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONSourceBytes reads a UTF-8 document straight from a window of bytes.
+ * ASCII is returned as is, multi-byte sequences are decoded on the fly,
+ * so no String copy of the document is ever made.
+ * <br>
+ * Subclasses decide where the bytes come from by implementing {@link #refill(int)}.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public abstract class JSONSourceBytes extends JSONSource {
+
+    protected ByteBuffer window;
+    protected int offset = 0, limit = 0;
+
+    /* Low half of a surrogate pair still to be returned, the offset stays on the sequence until then */
+    private char pendingLow = 0;
+
+    /* First byte refills must keep even once the offset is past it, or -1 */
+    private int mark = -1;
+
+    /* Used to decode strings out of windows that are not backed by an array */
+    private byte[] scratch = new byte[64];
+    private ByteBuffer view, viewOf;
+
+    protected JSONSourceBytes(ByteBuffer window, int limit) {
+        this.window = window;
+        this.limit = limit;
+    }
+
+    /**
+     * Points the source at new bytes, dropping whatever was being read
+     */
+    protected void reset(ByteBuffer window, int offset, int limit) {
+        this.window = window;
+        this.offset = offset;
+        this.limit = limit;
+        this.pendingLow = 0;
+        this.mark = -1;
+        this.shapes = null;
+    }
+
+    /**
+     * Makes more bytes available after {@link #limit}.
+     * Bytes from @keep onward must be preserved, they may be moved towards the start of the window.
+     *
+     * @param keep
+     *              The first index still in use
+     * @return
+     *              How many bytes the preserved content has been shifted back by, or -1 if there is nothing left to read
+     */
+    protected abstract int refill(int keep);
+
+    /**
+     * Makes sure at least @count bytes are readable from the current offset
+     */
+    protected boolean require(int count) {
+        while (limit - offset < count) {
+            int shift = refill(mark >= 0 ? Math.min(mark, offset) : offset);
+            if (shift < 0) {
+                return false;
+            }
+            offset -= shift;
+            if (mark >= 0) {
+                mark -= shift;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the bytes from @position on, up to the offset, readable through {@link #unmark()} however far the offset moves
+     */
+    void mark(int position) {
+        mark = position;
+    }
+
+    /**
+     * @return
+     *      A copy of the bytes from the mark up to the offset, excluded. The mark is dropped.
+     */
+    byte[] unmark() {
+        byte[] bytes = new byte[offset - mark];
+        ByteBuffer view = window.duplicate();
+        view.clear().position(mark);
+        view.get(bytes);
+        mark = -1;
+        return bytes;
+    }
+
+    public char getChar() {
+        if (pendingLow != 0) {
+            return pendingLow;
+        }
+        if (offset >= limit && !require(1)) {
+            return 0;
+        }
+
+        byte b = window.get(offset);
+        if (b >= 0) {
+            return (char) b;
+        }
+
+        int cp = decode();
+        return cp < 0x10000 ? (char) cp : Character.highSurrogate(cp);
+    }
+
+    public char nextChar() {
+        if (pendingLow != 0) {
+            char c = pendingLow;
+            pendingLow = 0;
+            offset += 4;
+            return c;
+        }
+        if (offset >= limit && !require(1)) {
+            return 0;
+        }
+
+        byte b = window.get(offset);
+        if (b >= 0) {
+            ++offset;
+            return (char) b;
+        }
+
+        int cp = decode();
+        if (cp < 0x10000) {
+            offset += sequenceLength(b);
+            return (char) cp;
+        }
+
+        pendingLow = Character.lowSurrogate(cp);
+        return Character.highSurrogate(cp);
+    }
+
+    public void next() {
+        nextChar();
+    }
+
+    public boolean end() {
+        return pendingLow == 0 && offset >= limit && !require(1);
+    }
+
+    @Override
+    public void skipWhitespace() {
+        while (offset < limit || require(1)) {
+            byte b = window.get(offset);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            ++offset;
+        }
+    }
+
+    @Override
+    public String readString() {
+        boolean ascii = true;
+        int i = offset;
+        while (true) {
+            /* Steps over 8 bytes at a time while none of them is a quote or a backslash */
+            if (i + 8 <= limit) {
+                long word = window.getLong(i);
+                if ((word & 0x8080808080808080L) != 0) {
+                    ascii = false;
+                }
+                if (!hasQuoteOrBackslash(word)) {
+                    i += 8;
+                    continue;
+                }
+            } else if (i >= limit) {
+                int relative = i - offset;
+                if (!require(relative + 1)) {
+                    throw new JSONBadFormat("Missing closing quote");
+                }
+                i = offset + relative;
+            }
+
+            byte b = window.get(i);
+            if (b == '"') {
+                String string = decode(offset, i, ascii);
+                offset = i + 1;
+                return string;
+            }
+            if (b == '\\') {
+                /* Copies what comes before the first escape at once, the rest goes the slow way */
+                StringBuilder builder = scratch();
+                builder.append(decode(offset, i, ascii));
+                offset = i;
+                readEscaped(builder);
+                return builder.toString();
+            }
+            if (b < 0) {
+                ascii = false;
+            }
+            ++i;
+        }
+    }
+
+    @Override
+    public String readKey() {
+        if (keyCache == null) {
+            return readString();
+        }
+
+        int hash = 0;
+        for (int i = offset; ; ++i) {
+            if (i >= limit) {
+                int relative = i - offset;
+                if (!require(relative + 1)) {
+                    throw new JSONBadFormat("Missing closing quote");
+                }
+                i = offset + relative;
+            }
+
+            byte b = window.get(i);
+            if (b == '"') {
+                String key = keyCache.get(window, offset, i, hash);
+                if (key == null) {
+                    key = keyCache.put(decode(offset, i, true), hash);
+                }
+                offset = i + 1;
+                return key;
+            }
+            if (b == '\\' || b < 0) {
+                /* Escapes and multi-byte sequences go the regular way */
+                return keyCache.intern(readString());
+            }
+            hash = 31 * hash + b;
+        }
+    }
+
+    @Override
+    public void skipString() {
+        int i = offset;
+        while (true) {
+            if (i + 8 <= limit) {
+                if (!hasQuoteOrBackslash(window.getLong(i))) {
+                    i += 8;
+                    continue;
+                }
+            } else if (i >= limit) {
+                int relative = i - offset;
+                if (!require(relative + 1)) {
+                    throw new JSONBadFormat("Missing closing quote");
+                }
+                i = offset + relative;
+            }
+
+            byte b = window.get(i);
+            if (b == '"') {
+                offset = i + 1;
+                return;
+            }
+            if (b == '\\') {
+                /* The escaped byte is never a multi-byte lead, so it can be stepped over blindly */
+                ++i;
+            }
+            ++i;
+        }
+    }
+
+    /**
+     * SWAR check for a '"' or a '\\' in any of the 8 bytes of @word
+     */
+    private static boolean hasQuoteOrBackslash(long word) {
+        long quotes = word ^ 0x2222222222222222L;
+        long backslashes = word ^ 0x5C5C5C5C5C5C5C5CL;
+        long zeroes = ((quotes - 0x0101010101010101L) & ~quotes) | ((backslashes - 0x0101010101010101L) & ~backslashes);
+        return (zeroes & 0x8080808080808080L) != 0;
+    }
+
+    private String decode(int from, int to, boolean ascii) {
+        Charset charset = ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8;
+        if (window.hasArray()) {
+            return new String(window.array(), window.arrayOffset() + from, to - from, charset);
+        }
+
+        if (scratch.length < to - from) {
+            scratch = new byte[Math.max(to - from, scratch.length * 2)];
+        }
+        if (viewOf != window) {
+            view = window.duplicate();
+            viewOf = window;
+        }
+        view.clear().position(from);
+        view.get(scratch, 0, to - from);
+        return new String(scratch, 0, to - from, charset);
+    }
+
+    /**
+     * Decodes the multi-byte sequence at the current offset without consuming it
+     */
+    private int decode() {
+        int lead = window.get(offset) & 0xFF;
+        int length = sequenceLength((byte) lead);
+        if (length == 0 || !require(length)) {
+            throw new JSONBadFormat("Invalid UTF-8 sequence");
+        }
+
+        int cp = lead & (0xFF >> (length + 1));
+        for (int i = 1; i < length; ++i) {
+            int b = window.get(offset + i) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                throw new JSONBadFormat("Invalid UTF-8 sequence");
+            }
+            cp = (cp << 6) | (b & 0x3F);
+        }
+
+        return cp;
+    }
+
+    private static int sequenceLength(byte lead) {
+        if ((lead & 0xE0) == 0xC0) return 2;
+        if ((lead & 0xF0) == 0xE0) return 3;
+        if ((lead & 0xF8) == 0xF0) return 4;
+        return 0;
+    }
+
+}
@@ -0,0 +1,128 @@
+package me.sthat.jjson.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONSourceMapped reads a UTF-8 document directly from a memory mapped file.
+ * The file is mapped one chunk at a time, so documents bigger than 2GB can be read too,
+ * and nothing but the decoded values ever reaches the heap.
+ * <br>
+ * Each new chunk starts at the first byte still in use, so tokens never straddle two mappings.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONSourceMapped extends JSONSourceBytes implements JSONIRandomAccess, Closeable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int chunkSize;
+
+    /* Position in the file of the first byte of the current mapping */
+    private long base = 0;
+
+    public JSONSourceMapped(FileChannel channel) throws IOException {
+        this(channel, DEFAULT_CHUNK_SIZE);
+    }
+
+    public JSONSourceMapped(FileChannel channel, int chunkSize) throws IOException {
+        super(null, 0);
+        this.channel = channel;
+        this.size = channel.size();
+        this.chunkSize = chunkSize;
+        map(0, chunkSize);
+    }
+
+    private JSONSourceMapped(JSONSourceMapped origin, long position) {
+        super(null, 0);
+        this.channel = origin.channel;
+        this.size = origin.size;
+        this.chunkSize = origin.chunkSize;
+        this.keyCache = origin.keyCache;
+        this.shapes = origin.getShapes();
+        if (origin.isWhollyMapped()) {
+            /* Every view of the file can share the one mapping */
+            window = origin.window.duplicate();
+            limit = origin.limit;
+            offset = (int) position;
+        } else {
+            map(position, chunkSize);
+        }
+    }
+
+    /**
+     * @return
+     *      true if the whole file fits in the current mapping, so the channel is no longer needed
+     */
+    public boolean isWhollyMapped() {
+        return base == 0 && limit == size;
+    }
+
+    @Override
+    public long position() {
+        return base + offset;
+    }
+
+    @Override
+    public JSONSource at(long position) {
+        return new JSONSourceMapped(this, position);
+    }
+
+    protected int refill(int keep) {
+        if (base + limit >= size) {
+            return -1;
+        }
+
+        /* A token longer than a whole chunk makes the next mapping bigger */
+        map(base + keep, Math.max(chunkSize, (limit - keep) * 2L));
+        return keep;
+    }
+
+    private void map(long position, long length) {
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Math.min(length, Integer.MAX_VALUE), size - position));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        base = position;
+        limit = window.capacity();
+    }
+
+    /**
+     * Closes the channel. The current mapping stays valid until it gets garbage collected
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
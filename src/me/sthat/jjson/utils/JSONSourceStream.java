@@ -0,0 +1,106 @@
+package me.sthat.jjson.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONSourceStream reads a UTF-8 document from a channel through a single reusable buffer.
+ * Only the bytes not consumed yet are kept, so memory stays bounded by the buffer size
+ * no matter how big the document is.
+ * <br>
+ * The channel is expected to be blocking.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONSourceStream extends JSONSourceBytes implements Closeable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private boolean eof = false;
+
+    public JSONSourceStream(ReadableByteChannel channel) {
+        this(channel, DEFAULT_CAPACITY);
+    }
+
+    public JSONSourceStream(ReadableByteChannel channel, int capacity) {
+        super(ByteBuffer.allocate(capacity), 0);
+        this.channel = channel;
+    }
+
+    public JSONSourceStream(InputStream stream) {
+        this(Channels.newChannel(stream));
+    }
+
+    protected int refill(int keep) {
+        if (eof) {
+            return -1;
+        }
+
+        /* Moves what is still in use to the start, or grows the buffer if everything is */
+        int remaining = limit - keep;
+        if (keep > 0) {
+            byte[] array = window.array();
+            System.arraycopy(array, keep, array, 0, remaining);
+        } else if (limit == window.capacity()) {
+            ByteBuffer grown = ByteBuffer.allocate(window.capacity() * 2);
+            System.arraycopy(window.array(), 0, grown.array(), 0, limit);
+            window = grown;
+        }
+        limit = remaining;
+
+        try {
+            int read;
+            do {
+                window.limit(window.capacity()).position(limit);
+                read = channel.read(window);
+            } while (read == 0);
+
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return keep;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
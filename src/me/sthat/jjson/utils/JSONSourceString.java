@@ -1,5 +1,7 @@
 package me.sthat.jjson.utils;
 
+import me.sthat.jjson.exceptions.JSONBadFormat;
+
 /*
  * MIT License
  *
@@ -31,70 +33,134 @@ package me.sthat.jjson.utils;
  * @since 1.0.12
  * @author sthat
  */
-public class JSONSourceString {
+public class JSONSourceString extends JSONSource implements JSONIRandomAccess {
 
     String buffer;
-    int offset = 0, virOffset = -1;
+    int offset = 0;
 
     public JSONSourceString(String buffer) {
         this.buffer = buffer;
     }
 
-    public char nextCharVir() {
-        if (virOffset == -1) {
-            virOffset = offset;
+    /**
+     * Points the source at a new document, so its scratch buffers are reused rather than made again
+     */
+    public JSONSourceString reset(String buffer) {
+        this.buffer = buffer;
+        this.offset = 0;
+        this.shapes = null;
+        return this;
+    }
+
+    public char getChar() {
+        if (end()) {
+            return 0;
         }
+        return buffer.charAt(offset);
+    }
 
-        if (virOffset >= buffer.length()) {
+    public char nextChar() {
+        if (end()) {
             return 0;
         }
+        return buffer.charAt(offset++);
+    }
 
-        return buffer.charAt(virOffset++);
+    public void next() {
+        ++offset;
     }
 
-    public void disableVirOffset() {
-        virOffset = -1;
+    public boolean end() {
+        return offset >= buffer.length();
     }
 
-    public void resetVirOffset() {
-        virOffset = offset;
+    @Override
+    public long position() {
+        return offset;
     }
 
-    public boolean assertNextCharIs(char c) {
-        return nextChar() == c;
+    @Override
+    public JSONSource at(long position) {
+        JSONSourceString source = new JSONSourceString(buffer);
+        source.offset = (int) position;
+        source.keyCache = keyCache;
+        source.shapes = getShapes();
+        return source;
     }
 
-    public char getChar() {
-        if (end()) {
-            return 0;
+    @Override
+    public void skipWhitespace() {
+        int length = buffer.length();
+        while (offset < length && isWhitespace(buffer.charAt(offset))) {
+            ++offset;
         }
-        return buffer.charAt(offset);
     }
 
-    public char getVir() {
-        if (end()) {
-            return 0;
+    @Override
+    public String readString() {
+        int length = buffer.length();
+        for (int i = offset; i < length; ++i) {
+            char c = buffer.charAt(i);
+            if (c == '"') {
+                String string = buffer.substring(offset, i);
+                offset = i + 1;
+                return string;
+            }
+            if (c == '\\') {
+                /* Copies what comes before the first escape at once, the rest goes the slow way */
+                StringBuilder builder = scratch();
+                builder.append(buffer, offset, i);
+                offset = i;
+                readEscaped(builder);
+                return builder.toString();
+            }
         }
-        return buffer.charAt(virOffset);
+
+        throw new JSONBadFormat("Missing closing quote");
     }
 
-    public char nextChar() {
-        if (end()) {
-            return 0;
+    @Override
+    public String readKey() {
+        if (keyCache == null) {
+            return readString();
         }
-        return buffer.charAt(offset++);
-    }
 
-    public void next() {
-        ++offset;
-    }
+        int length = buffer.length();
+        int hash = 0;
+        for (int i = offset; i < length; ++i) {
+            char c = buffer.charAt(i);
+            if (c == '"') {
+                String key = keyCache.get(buffer, offset, i, hash);
+                if (key == null) {
+                    key = keyCache.put(buffer.substring(offset, i), hash);
+                }
+                offset = i + 1;
+                return key;
+            }
+            if (c == '\\') {
+                break;
+            }
+            hash = 31 * hash + c;
+        }
 
-    public void nextVir() {
-        ++virOffset;
+        return keyCache.intern(readString());
     }
 
-    public boolean end() {
-        return offset >= buffer.length();
+    @Override
+    public void skipString() {
+        int length = buffer.length();
+        for (int i = offset; i < length; ++i) {
+            char c = buffer.charAt(i);
+            if (c == '"') {
+                offset = i + 1;
+                return;
+            }
+            if (c == '\\') {
+                ++i;
+            }
+        }
+
+        throw new JSONBadFormat("Missing closing quote");
     }
 
 
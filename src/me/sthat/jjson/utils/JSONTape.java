@@ -0,0 +1,428 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.exceptions.JSONUnexpectedToken;
+import me.sthat.jjson.types.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONTape holds a whole document in a single block of off-heap memory, rather than as a graph of objects.
+ * However big the document, the garbage collector only ever sees the tape and the few views in use.
+ * <br>
+ * Each value is a one byte tag followed by its content, in document order:<br>
+ * - integers and doubles inline, in 8 bytes.<br>
+ * - strings as their UTF-8 length and bytes.<br>
+ * - objects and arrays as their count and the position of a table placed after their content,
+ *   which holds the position of each element, or of each key, with its value right after it.<br>
+ * <br>
+ * {@link #root()} and everything reached from it are read only views over the tape, made as they are accessed:
+ * a JSONObject or a JSONArray reads its members from the tape each time, a scalar is decoded when read.
+ * Keys are found by scanning the table of their object.
+ * <br>
+ * The tape is freed once neither it nor any view over it is reachable. It is safe to read from any thread.
+ * It holds at most 2 GB.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public final class JSONTape {
+
+    private static final byte NULL = 0, TRUE = 1, FALSE = 2, INTEGER = 3, DOUBLE = 4, STRING = 5, ARRAY = 6, OBJECT = 7;
+
+    /* Tag, count and table position */
+    private static final int CONTAINER_HEADER = 9;
+
+    private final ByteBuffer tape;
+
+    private JSONTape(ByteBuffer tape) {
+        this.tape = tape;
+    }
+
+    /**
+     * Parses the document in @source, from its current offset, into a new tape.
+     * Nothing but whitespace may follow the value.
+     */
+    public static JSONTape parse(JSONSource source) {
+        Builder builder = new Builder();
+        JSONParser.jsonParseNextItem(source, builder);
+        if (builder.depth != 0) {
+            throw new JSONUnexpectedToken("Unexpected end of the document.");
+        }
+        JSONParser.jsonAssertEnd(source);
+        return new JSONTape(builder.toDirect());
+    }
+
+    /**
+     * @return
+     *      A view over the top level value
+     */
+    public JSONIElement root() {
+        return element(0);
+    }
+
+    /**
+     * @return
+     *      How many bytes of memory the tape takes
+     */
+    public int size() {
+        return tape.capacity();
+    }
+
+    private JSONIElement element(int position) {
+        switch (tape.get(position)) {
+            case OBJECT: {
+                return new JSONObject(new TapeObject(position));
+            }
+            case ARRAY: {
+                return new JSONArray(new TapeArray(position));
+            }
+            case STRING: {
+                return new JSONString(string(position + 1));
+            }
+            case INTEGER: {
+                return JSONInteger.valueOf(tape.getLong(position + 1));
+            }
+            case DOUBLE: {
+                return new JSONDouble(tape.getDouble(position + 1));
+            }
+            case TRUE: {
+                return JSONBoolean.TRUE;
+            }
+            case FALSE: {
+                return JSONBoolean.FALSE;
+            }
+            default: {
+                return JSONNull.NULL;
+            }
+        }
+    }
+
+    /**
+     * Decodes the string whose length is at @position
+     */
+    private String string(int position) {
+        int length = tape.getInt(position);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = tape.get(position + 4 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tells whether the string whose length is at @position is @key, without decoding it
+     */
+    private boolean matches(int position, String key, byte[] encoded) {
+        int length = tape.getInt(position);
+        if (encoded != null) {
+            if (length != encoded.length) {
+                return false;
+            }
+            for (int i = 0; i < length; ++i) {
+                if (tape.get(position + 4 + i) != encoded[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        if (length != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (tape.get(position + 4 + i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return
+     *      @key encoded as UTF-8, or null if it is plain ASCII and can be compared char by byte
+     */
+    private static byte[] encode(String key) {
+        for (int i = 0; i < key.length(); ++i) {
+            if (key.charAt(i) >= 0x80) {
+                return key.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The elements of an array on the tape
+     */
+    private final class TapeArray extends AbstractList<JSONIElement> implements RandomAccess {
+
+        private final int count, table;
+
+        private TapeArray(int position) {
+            this.count = tape.getInt(position + 1);
+            this.table = tape.getInt(position + 5);
+        }
+
+        public JSONIElement get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            }
+            return element(tape.getInt(table + 4 * index));
+        }
+
+        public int size() {
+            return count;
+        }
+    }
+
+    /**
+     * The members of an object on the tape
+     */
+    private final class TapeObject extends AbstractMap<String, JSONIElement> {
+
+        private final int count, table;
+
+        private TapeObject(int position) {
+            this.count = tape.getInt(position + 1);
+            this.table = tape.getInt(position + 5);
+        }
+
+        /**
+         * @return
+         *      The position of the value of @key, or -1 if there is none
+         */
+        private int find(Object key) {
+            if (!(key instanceof String)) {
+                return -1;
+            }
+            String string = (String) key;
+            byte[] encoded = encode(string);
+            for (int i = 0; i < count; ++i) {
+                int member = tape.getInt(table + 4 * i);
+                if (matches(member, string, encoded)) {
+                    return member + 4 + tape.getInt(member);
+                }
+            }
+            return -1;
+        }
+
+        public JSONIElement get(Object key) {
+            int value = find(key);
+            return value < 0 ? null : element(value);
+        }
+
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public Set<Entry<String, JSONIElement>> entrySet() {
+            return new AbstractSet<Entry<String, JSONIElement>>() {
+                public Iterator<Entry<String, JSONIElement>> iterator() {
+                    return new Iterator<Entry<String, JSONIElement>>() {
+                        private int next = 0;
+
+                        public boolean hasNext() {
+                            return next < count;
+                        }
+
+                        public Entry<String, JSONIElement> next() {
+                            if (next >= count) {
+                                throw new NoSuchElementException();
+                            }
+                            int member = tape.getInt(table + 4 * next++);
+                            return new SimpleImmutableEntry<>(string(member), element(member + 4 + tape.getInt(member)));
+                        }
+                    };
+                }
+
+                public int size() {
+                    return count;
+                }
+            };
+        }
+    }
+
+    /**
+     * Writes what the parser reports to a heap buffer, copied off-heap once complete.
+     * The position of each element is kept on a stack until its container ends and gets its table.
+     */
+    private static final class Builder implements JSONHandler {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.nativeOrder());
+
+        private int[] containers = new int[16];
+        private int[] bases = new int[16];
+        private int depth = 0;
+
+        private int[] elements = new int[64];
+        private int pending = 0;
+
+        private byte[] scratch = new byte[64];
+
+        public void startObject() {
+            start(OBJECT);
+        }
+
+        public void key(String key) {
+            mark();
+            writeString(key);
+        }
+
+        public void endObject() {
+            end();
+        }
+
+        public void startArray() {
+            start(ARRAY);
+        }
+
+        public void endArray() {
+            end();
+        }
+
+        public void value(long value) {
+            element(INTEGER, 8);
+            buffer.putLong(value);
+        }
+
+        public void value(double value) {
+            element(DOUBLE, 8);
+            buffer.putDouble(value);
+        }
+
+        public void value(boolean value) {
+            element(value ? TRUE : FALSE, 0);
+        }
+
+        public void value(CharSequence value) {
+            element(STRING, 0);
+            writeString(value);
+        }
+
+        public void valueNull() {
+            element(NULL, 0);
+        }
+
+        /**
+         * Starts a value, recording its position if it is an element of an array
+         */
+        private void element(byte tag, int size) {
+            if (depth > 0 && buffer.get(containers[depth - 1]) == ARRAY) {
+                mark();
+            }
+            ensure(1 + size);
+            buffer.put(tag);
+        }
+
+        /**
+         * Records the current position in the table of the innermost container
+         */
+        private void mark() {
+            if (pending == elements.length) {
+                elements = Arrays.copyOf(elements, pending * 2);
+            }
+            elements[pending++] = buffer.position();
+        }
+
+        private void start(byte tag) {
+            element(tag, CONTAINER_HEADER - 1);
+            buffer.position(buffer.position() + CONTAINER_HEADER - 1);
+            if (depth == containers.length) {
+                containers = Arrays.copyOf(containers, depth * 2);
+                bases = Arrays.copyOf(bases, depth * 2);
+            }
+            containers[depth] = buffer.position() - CONTAINER_HEADER;
+            bases[depth] = pending;
+            ++depth;
+        }
+
+        private void end() {
+            --depth;
+            int container = containers[depth], base = bases[depth];
+            int count = pending - base;
+
+            ensure(4 * count);
+            int table = buffer.position();
+            for (int i = base; i < pending; ++i) {
+                buffer.putInt(elements[i]);
+            }
+            buffer.putInt(container + 1, count);
+            buffer.putInt(container + 5, table);
+            pending = base;
+        }
+
+        private void writeString(CharSequence value) {
+            int length = value.length();
+            if (scratch.length < length * 3) {
+                scratch = new byte[Math.max(length * 3, scratch.length * 2)];
+            }
+
+            int size = JSONByteWriter.encode(value, scratch);
+            ensure(4 + size);
+            buffer.putInt(size);
+            buffer.put(scratch, 0, size);
+        }
+
+        private void ensure(int size) {
+            if (buffer.remaining() >= size) {
+                return;
+            }
+            long capacity = Math.max((long) buffer.capacity() * 2, (long) buffer.position() + size);
+            if (capacity > Integer.MAX_VALUE - 8) {
+                throw new OutOfMemoryError("The document doesn't fit in a tape");
+            }
+            ByteBuffer grown = ByteBuffer.allocate((int) capacity).order(ByteOrder.nativeOrder());
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+
+        private ByteBuffer toDirect() {
+            ByteBuffer direct = ByteBuffer.allocateDirect(buffer.position()).order(ByteOrder.nativeOrder());
+            buffer.flip();
+            direct.put(buffer);
+            return direct;
+        }
+    }
+
+}
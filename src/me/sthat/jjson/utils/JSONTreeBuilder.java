@@ -0,0 +1,135 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.types.*;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONTreeBuilder is a JSONHandler that builds the values it is told about,
+ * handing each top level value to a consumer as soon as it is complete.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONTreeBuilder implements JSONHandler {
+
+    private final Consumer<JSONIElement> consumer;
+
+    private JSONIElement[] containers = new JSONIElement[16];
+    private String[] keys = new String[16];
+    private int depth = 0;
+
+    /* Shared by every object built, across documents too, until it is full */
+    private JSONShape shapes = JSONShape.root();
+
+    public JSONTreeBuilder(Consumer<JSONIElement> consumer) {
+        this.consumer = consumer;
+    }
+
+    public void startObject() {
+        if (shapes.isFull()) {
+            shapes = JSONShape.root();
+        }
+        push(new JSONObject(shapes));
+    }
+
+    public void key(String key) {
+        keys[depth - 1] = key;
+    }
+
+    public void endObject() {
+        pop();
+    }
+
+    public void startArray() {
+        push(new JSONArray());
+    }
+
+    public void endArray() {
+        pop();
+    }
+
+    public void value(long value) {
+        add(JSONInteger.valueOf(value));
+    }
+
+    public void value(double value) {
+        add(new JSONDouble(value));
+    }
+
+    public void value(boolean value) {
+        add(JSONBoolean.valueOf(value));
+    }
+
+    public void value(CharSequence value) {
+        add(new JSONString(value.toString()));
+    }
+
+    public void valueNull() {
+        add(JSONNull.NULL);
+    }
+
+    /**
+     * @return
+     *      How many containers are open
+     */
+    public int depth() {
+        return depth;
+    }
+
+    private void push(JSONIElement container) {
+        if (depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth * 2);
+            keys = Arrays.copyOf(keys, depth * 2);
+        }
+        containers[depth] = container;
+        keys[depth++] = null;
+    }
+
+    private void pop() {
+        JSONIElement container = containers[--depth];
+        containers[depth] = null;
+        add(container);
+    }
+
+    private void add(JSONIElement element) {
+        if (depth == 0) {
+            consumer.accept(element);
+            return;
+        }
+
+        JSONIElement container = containers[depth - 1];
+        if (container instanceof JSONObject) {
+            ((JSONObject) container).append(keys[depth - 1], element);
+        } else {
+            ((JSONArray) container).append(element);
+        }
+    }
+
+}
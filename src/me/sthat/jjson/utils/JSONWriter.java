@@ -0,0 +1,295 @@
+package me.sthat.jjson.utils;
+
+import me.sthat.jjson.types.*;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 sthat
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+/**
+ * JSONWriter serializes elements to any Appendable: a Writer, a StringBuilder, a PrintStream...
+ * Output is collected in a char buffer and handed to the sink in large chunks,
+ * indentation is copied from a run of spaces built once.
+ * <br>
+ * Nothing reaches the sink before the buffer is full or {@link #flush()} is called.
+ *
+ * @since 1.1.0
+ * @author sthat
+ */
+public class JSONWriter implements Flushable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 13;
+
+    /* What each ASCII char is written as inside a string, null if it needs no escaping */
+    private static final String[] ESCAPES = new String[128];
+
+    static {
+        for (int c = 0; c < 0x20; ++c) {
+            ESCAPES[c] = String.format("\\u%04x", c);
+        }
+        ESCAPES['"'] = "\\\"";
+        ESCAPES['\\'] = "\\\\";
+        ESCAPES['\n'] = "\\n";
+        ESCAPES['\r'] = "\\r";
+        ESCAPES['\t'] = "\\t";
+        ESCAPES['\b'] = "\\b";
+        ESCAPES['\f'] = "\\f";
+    }
+
+    private Appendable out;
+    private int indentation;
+
+    private final char[] buffer;
+    private int count = 0;
+
+    private char[] spaces = new char[0];
+
+    /**
+     * @param out
+     *              Where to write to
+     * @param indentation
+     *              The indentation to use.<br>
+     *              - Set 0 to disable.<br>
+     *              - Set -1 to print each element to a single line.
+     */
+    public JSONWriter(Appendable out, int indentation) {
+        this(out, indentation, DEFAULT_CAPACITY);
+    }
+
+    public JSONWriter(Appendable out, int indentation, int capacity) {
+        this.out = out;
+        this.indentation = indentation;
+        this.buffer = new char[capacity];
+    }
+
+    /**
+     * Points the writer at another sink, keeping its buffers.
+     * Anything not flushed yet is dropped.
+     */
+    public JSONWriter reset(Appendable out, int indentation) {
+        this.out = out;
+        this.indentation = indentation;
+        this.count = 0;
+        return this;
+    }
+
+    /**
+     * Writes @element as a top level value
+     */
+    public JSONWriter write(JSONIElement element) throws IOException {
+        write(element, 0);
+        return this;
+    }
+
+    /**
+     * Writes @element as if it were nested @level containers deep
+     */
+    public void write(JSONIElement element, int level) throws IOException {
+        switch (element.getElementType()) {
+            case OBJECT: {
+                writeObject(((JSONObject) element).getValue(), level);
+                break;
+            }
+            case ARRAY: {
+                writeArray((JSONArray) element, level);
+                break;
+            }
+            case STRING: {
+                writeString(element.asString());
+                break;
+            }
+            case INTEGER: {
+                append(Long.toString(element.asLong()));
+                break;
+            }
+            case DOUBLE: {
+                append(Double.toString(element.asDouble()));
+                break;
+            }
+            case BOOLEAN: {
+                append(element.asBoolean() ? "true" : "false");
+                break;
+            }
+            case NULL: {
+                append("null");
+                break;
+            }
+        }
+    }
+
+    private void writeObject(Map<String, JSONIElement> map, int level) throws IOException {
+        append('{');
+        if (indentation >= 0) {
+            append('\n');
+        }
+
+        int remaining = map.size();
+        for (Map.Entry<String, JSONIElement> entry : map.entrySet()) {
+            indent(level + 1);
+            writeString(entry.getKey());
+            append(':');
+            append(' ');
+            write(entry.getValue(), level + 1);
+            if (--remaining > 0) {
+                append(',');
+            }
+            if (indentation >= 0) {
+                append('\n');
+            }
+        }
+
+        indent(level);
+        append('}');
+    }
+
+    private void writeArray(JSONArray array, int level) throws IOException {
+        append('[');
+        if (indentation >= 0) {
+            append('\n');
+        }
+
+        /* Numbers held in a primitive array are written without being boxed */
+        JSONType primitive = array.getPrimitiveType();
+        int size = (int) array.size();
+        for (int i = 0; i < size; ++i) {
+            indent(level + 1);
+            if (primitive == JSONType.INTEGER) {
+                append(Long.toString(array.getLong(i)));
+            } else if (primitive == JSONType.DOUBLE) {
+                append(Double.toString(array.getDouble(i)));
+            } else {
+                write(array.get(i), level + 1);
+            }
+            if (i + 1 < size) {
+                append(',');
+            }
+            if (indentation >= 0) {
+                append('\n');
+            }
+        }
+
+        indent(level);
+        append(']');
+    }
+
+    /**
+     * Writes @value quoted, copying the runs that need no escaping at once
+     */
+    public void writeString(String value) throws IOException {
+        append('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; ++i) {
+            char c = value.charAt(i);
+            String escape = c < 128 ? ESCAPES[c] : null;
+            if (escape != null) {
+                append(value, start, i);
+                append(escape);
+                start = i + 1;
+            }
+        }
+        append(value, start, length);
+        append('"');
+    }
+
+    private void indent(int level) throws IOException {
+        int length = indentation * level;
+        if (length <= 0) {
+            return;
+        }
+        if (spaces.length < length) {
+            spaces = new char[Math.max(length, spaces.length * 2)];
+            Arrays.fill(spaces, ' ');
+        }
+
+        int written = 0;
+        while (written < length) {
+            if (count == buffer.length) {
+                drain();
+            }
+            int chunk = Math.min(length - written, buffer.length - count);
+            System.arraycopy(spaces, 0, buffer, count, chunk);
+            count += chunk;
+            written += chunk;
+        }
+    }
+
+    private void append(char c) throws IOException {
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = c;
+    }
+
+    private void append(String string) throws IOException {
+        append(string, 0, string.length());
+    }
+
+    private void append(String string, int from, int to) throws IOException {
+        while (from < to) {
+            if (count == buffer.length) {
+                drain();
+            }
+            int chunk = Math.min(to - from, buffer.length - count);
+            string.getChars(from, from + chunk, buffer, count);
+            count += chunk;
+            from += chunk;
+        }
+    }
+
+    /**
+     * Hands the buffer to the sink
+     */
+    private void drain() throws IOException {
+        if (count == 0) {
+            return;
+        }
+        if (out instanceof Writer) {
+            ((Writer) out).write(buffer, 0, count);
+        } else if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(buffer, 0, count);
+        } else {
+            out.append(CharBuffer.wrap(buffer, 0, count));
+        }
+        count = 0;
+    }
+
+    /**
+     * Hands everything written so far to the sink, flushing it too if it can be
+     */
+    public void flush() throws IOException {
+        drain();
+        if (out instanceof Flushable) {
+            ((Flushable) out).flush();
+        }
+    }
+
+}